@@ -0,0 +1,67 @@
+package CsvUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Dictionary of distinct values of a column, every value is kept once and referred by its code.
+ * <p>
+ * Codes are dense and assigned in the order values are first seen. Values are never removed from the dictionary,
+ * a column whose values keep changing should not be encoded.
+ */
+final class ColumnDictionary {
+public static final int NULL_CODE = - 1;
+
+private final HashMap<String, Integer> m_codes_  = new HashMap<>();  // value to code
+private final ArrayList<String>        m_values_ = new ArrayList<>();  // code to value
+
+/**
+ * Get code of a value, the value is added to the dictionary if not exists
+ *
+ * @param val value
+ * @return code, {@link #NULL_CODE} if the value is null
+ */
+int Encode(String val) {
+  if (val == null) {
+    return NULL_CODE;
+  }
+  Integer code = m_codes_.get(val);
+  if (code == null) {
+    code = m_values_.size();
+    m_values_.add(val);
+    m_codes_.put(val, code);
+  }
+  return code;
+}
+
+/**
+ * Get value of a code
+ *
+ * @param code code
+ * @return value, null if the code is {@link #NULL_CODE}
+ * @throws IndexOutOfBoundsException if there is no such code
+ */
+String Decode(int code) throws IndexOutOfBoundsException {
+  return code == NULL_CODE ? null : m_values_.get(code);
+}
+
+/**
+ * Get the instance kept by the dictionary that equals to the value
+ *
+ * @param val value
+ * @return shared instance of the value
+ */
+String Intern(String val) {
+  return Decode(Encode(val));
+}
+
+/**
+ * Get count of distinct values
+ *
+ * @return distinct values
+ */
+int Size() {
+  return m_values_.size();
+}
+
+}
@@ -0,0 +1,140 @@
+package CsvUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Hash index of a column, maps every value to the rows holding it.
+ * <p>
+ * Appending, changing and removing the last row update the index in place. Inserting or removing a row in the
+ * middle shifts positions of the rows after it, the index is then invalidated and rebuilt on next lookup.
+ */
+final class ColumnIndex {
+private static final int[] NO_ROWS = new int[0];
+
+private final int                   m_col_;                        // indexed column
+private final HashMap<String, Rows> m_rows_  = new HashMap<>();    // value to rows
+private       boolean               m_valid_ = false;              // if the index reflects the storage
+
+/**
+ * Rows holding the same value, in ascending order
+ */
+private static final class Rows {
+  private int[] m_rows_ = new int[4];
+  private int   m_size_ = 0;
+
+  void Add(int row) {
+    int i = Arrays.binarySearch(m_rows_, 0, m_size_, row);
+    if (i >= 0) {
+      return;
+    }
+    i = - i - 1;
+    if (m_size_ == m_rows_.length) {
+      m_rows_ = Arrays.copyOf(m_rows_, m_rows_.length * 2);
+    }
+    System.arraycopy(m_rows_, i, m_rows_, i + 1, m_size_ - i);
+    m_rows_[i] = row;
+    m_size_++;
+  }
+
+  void Remove(int row) {
+    int i = Arrays.binarySearch(m_rows_, 0, m_size_, row);
+    if (i >= 0) {
+      System.arraycopy(m_rows_, i + 1, m_rows_, i, m_size_ - i - 1);
+      m_size_--;
+    }
+  }
+}
+
+/**
+ * Construct an index of a column, invalid until built
+ *
+ * @param col column index
+ */
+ColumnIndex(int col) {
+  m_col_ = col;
+}
+
+/**
+ * Get the indexed column
+ *
+ * @return column index
+ */
+int GetCol() {
+  return m_col_;
+}
+
+/**
+ * Check if the index reflects the storage
+ *
+ * @return false if the index must be rebuilt before lookup
+ */
+boolean IsValid() {
+  return m_valid_;
+}
+
+/**
+ * Mark the index as out of date
+ */
+void Invalidate() {
+  m_valid_ = false;
+  m_rows_.clear();
+}
+
+/**
+ * Rebuild the index from the storage, missing elements are indexed as empty string
+ *
+ * @param storage storage of the table
+ */
+void Build(TableStorage storage) {
+  m_rows_.clear();
+  for (int i = 0; i < storage.Rows(); i++) {
+    Add(m_col_ < storage.RowLength(i) ? storage.Get(i, m_col_) : "", i);
+  }
+  m_valid_ = true;
+}
+
+/**
+ * Record that `row' row holds the value
+ *
+ * @param val value
+ * @param row row index
+ */
+void Add(String val, int row) {
+  m_rows_.computeIfAbsent(val, k -> new Rows())
+         .Add(row);
+}
+
+/**
+ * Record that `row' row no longer holds the value
+ *
+ * @param val value
+ * @param row row index
+ */
+void Remove(String val, int row) {
+  Rows rows = m_rows_.get(val);
+  if (rows != null) {
+    rows.Remove(row);
+    if (rows.m_size_ == 0) {
+      m_rows_.remove(val);
+    }
+  }
+}
+
+/**
+ * Find rows holding the value, the index must be valid
+ *
+ * @param val   value
+ * @param limit rows at or after the limit are not returned
+ * @return row indexes, in ascending order
+ */
+int[] Find(String val, int limit) {
+  Rows rows = m_rows_.get(val);
+  if (rows == null) {
+    return NO_ROWS;
+  }
+  int end = Arrays.binarySearch(rows.m_rows_, 0, rows.m_size_, limit);
+  return Arrays.copyOf(rows.m_rows_, end >= 0 ? end : - end - 1);
+}
+
+}
@@ -0,0 +1,499 @@
+package CsvUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binds rows of a csv source to records through a compiled {@link CsvSchema}.
+ * <p>
+ * Fields are decoded into typed slots straight from the tokenizer: int columns are parsed in place, no string is
+ * made for them, and written back as digits. Records are built from, and taken apart into, the slots by a
+ * {@link Decoder} and an {@link Encoder}.
+ *
+ * @param <T> record class
+ */
+public class CsvCodec<T> {
+
+/**
+ * Build a record from decoded fields
+ *
+ * @param <T> record class
+ */
+public interface Decoder<T> {
+
+  /**
+   * Apply the decoder on fields of a row
+   *
+   * @param fields decoded fields, only valid during the call
+   * @return the record, null to skip the row
+   */
+  T Apply(Fields fields);
+}
+
+/**
+ * Take a record apart into fields
+ *
+ * @param <T> record class
+ */
+public interface Encoder<T> {
+
+  /**
+   * Apply the encoder on a record
+   *
+   * @param record record to be encoded
+   * @param fields fields to be filled, all are null initially
+   */
+  void Apply(T record, Fields fields);
+}
+
+/**
+ * Callback applied on every record of a streamed csv source
+ *
+ * @param <T> record class
+ */
+public interface RecordHook<T> {
+
+  /**
+   * Apply the hook to a record
+   *
+   * @param record the record
+   */
+  void Apply(T record);
+}
+
+/**
+ * Typed slots holding fields of one row
+ */
+public static final class Fields {
+  private static final byte NULL      = 0;
+  private static final byte VALUE     = 1;
+  private static final byte MALFORMED = 2;
+
+  private final CsvCodec<?> m_codec_;
+  private final byte[]      m_states_;   // state of every field
+  private final String[]    m_strings_;  // values of string fields, or text of malformed fields
+  private final int[]       m_ints_;     // values of int fields
+
+  private Fields(CsvCodec<?> codec) {
+    m_codec_   = codec;
+    m_states_  = new byte[codec.m_types_.length];
+    m_strings_ = new String[codec.m_types_.length];
+    m_ints_    = new int[codec.m_types_.length];
+  }
+
+  /**
+   * Check if `col' field is empty
+   *
+   * @param col column index
+   * @return true if the field is empty or missing
+   * @throws IndexOutOfBoundsException if the col is out of bound
+   */
+  public boolean IsNull(int col) throws IndexOutOfBoundsException {
+    return m_states_[col] == NULL;
+  }
+
+  /**
+   * Get `col' field of a string column
+   *
+   * @param col column index
+   * @return value, null if the field is empty in a nullable column
+   * @throws Exceptions.IllegalFieldException if the column is not a string column, or the field is empty in a
+   *                                          non-nullable column
+   * @throws IndexOutOfBoundsException        if the col is out of bound
+   */
+  public String GetString(int col) throws Exceptions.IllegalFieldException, IndexOutOfBoundsException {
+    Check(col, CsvSchema.Type.STRING);
+    return m_states_[col] == NULL ? null : m_strings_[col];
+  }
+
+  /**
+   * Get `col' field of an int column
+   *
+   * @param col column index
+   * @return value
+   * @throws Exceptions.IllegalFieldException if the column is not an int column, or the field is empty
+   * @throws NumberFormatException            if the field is not a valid int
+   * @throws IndexOutOfBoundsException        if the col is out of bound
+   */
+  public int GetInt(int col) throws Exceptions.IllegalFieldException, NumberFormatException,
+                                    IndexOutOfBoundsException {
+    Check(col, CsvSchema.Type.INT);
+    if (m_states_[col] == NULL) {
+      throw new Exceptions.IllegalFieldException("Column " + m_codec_.m_names_[col] + " is empty");
+    }
+    if (m_states_[col] == MALFORMED) {
+      throw new NumberFormatException("For input string: \"" + m_strings_[col] + "\"");
+    }
+    return m_ints_[col];
+  }
+
+  /**
+   * Set `col' field of a string column
+   *
+   * @param col   column index
+   * @param value value, null for an empty field
+   * @return self, for chain-call
+   * @throws Exceptions.IllegalFieldException if the column is not a string column
+   * @throws IndexOutOfBoundsException        if the col is out of bound
+   */
+  public Fields SetString(int col, String value) throws Exceptions.IllegalFieldException, IndexOutOfBoundsException {
+    CheckType(col, CsvSchema.Type.STRING);
+    m_states_[col]  = value == null || value.isEmpty() ? NULL : VALUE;
+    m_strings_[col] = value;
+    return this;
+  }
+
+  /**
+   * Set `col' field of an int column
+   *
+   * @param col   column index
+   * @param value value
+   * @return self, for chain-call
+   * @throws Exceptions.IllegalFieldException if the column is not an int column
+   * @throws IndexOutOfBoundsException        if the col is out of bound
+   */
+  public Fields SetInt(int col, int value) throws Exceptions.IllegalFieldException, IndexOutOfBoundsException {
+    CheckType(col, CsvSchema.Type.INT);
+    m_states_[col] = VALUE;
+    m_ints_[col]   = value;
+    return this;
+  }
+
+  /**
+   * Empty `col' field
+   *
+   * @param col column index
+   * @return self, for chain-call
+   * @throws IndexOutOfBoundsException if the col is out of bound
+   */
+  public Fields SetNull(int col) throws IndexOutOfBoundsException {
+    m_states_[col] = NULL;
+    return this;
+  }
+
+  /**
+   * Format the fields as a row, for diagnosis
+   *
+   * @return the row
+   */
+  @Override
+  public String toString() {
+    StringBuilder stringBuilder = new StringBuilder("[");
+    for (int i = 0; i < m_states_.length; i++) {
+      if (i > 0) {
+        stringBuilder.append(", ");
+      }
+      if (m_states_[i] != NULL) {
+        stringBuilder.append(m_codec_.m_types_[i] == CsvSchema.Type.INT && m_states_[i] == VALUE
+                             ? String.valueOf(m_ints_[i])
+                             : m_strings_[i]);
+      }
+    }
+    return stringBuilder.append(']')
+                        .toString();
+  }
+
+  private void Clear() {
+    Arrays.fill(m_states_, NULL);
+  }
+
+  private void Check(int col, CsvSchema.Type type) throws Exceptions.IllegalFieldException {
+    CheckType(col, type);
+    if (m_states_[col] == NULL && ! m_codec_.m_nullable_[col]) {
+      throw new Exceptions.IllegalFieldException("Column " + m_codec_.m_names_[col] + " cannot be empty");
+    }
+  }
+
+  private void CheckType(int col, CsvSchema.Type type) throws Exceptions.IllegalFieldException {
+    if (m_codec_.m_types_[col] != type) {
+      throw new Exceptions.IllegalFieldException("Column " + m_codec_.m_names_[col] + " is not of type " + type);
+    }
+  }
+
+  /**
+   * Decode the value under the tokenizer into `col' field, fields out of the schema are ignored
+   */
+  private void Decode(int col, CsvTokenizer tokenizer) {
+    if (col >= m_states_.length) {
+      return;
+    }
+    if (m_codec_.m_types_[col] == CsvSchema.Type.STRING) {
+      String value = tokenizer.Value()
+                              .trim();
+      m_states_[col]  = value.isEmpty() ? NULL : VALUE;
+      m_strings_[col] = value;
+    } else if (tokenizer.IsBlank()) {
+      m_states_[col] = NULL;
+    } else {
+      try {
+        m_ints_[col]   = tokenizer.IntValue();
+        m_states_[col] = VALUE;
+      } catch (NumberFormatException e) {
+        m_strings_[col] = tokenizer.Value()
+                                   .trim();
+        m_states_[col]  = MALFORMED;
+      }
+    }
+  }
+
+  /**
+   * Decode a string into `col' field
+   */
+  private void Decode(int col, String src) {
+    if (m_codec_.m_types_[col] == CsvSchema.Type.STRING) {
+      String value = src.trim();
+      m_states_[col]  = value.isEmpty() ? NULL : VALUE;
+      m_strings_[col] = value;
+    } else if (src.isBlank()) {
+      m_states_[col] = NULL;
+    } else {
+      try {
+        m_ints_[col]   = CsvTokenizer.ParseInt(src, 0, src.length());
+        m_states_[col] = VALUE;
+      } catch (NumberFormatException e) {
+        m_strings_[col] = src.trim();
+        m_states_[col]  = MALFORMED;
+      }
+    }
+  }
+}
+
+private final CsvSchema        m_schema_;
+private final String[]         m_names_;     // names of columns
+private final CsvSchema.Type[] m_types_;     // types of columns
+private final boolean[]        m_nullable_;  // nullability of columns
+private final Decoder<T>       m_decoder_;
+private final Encoder<T>       m_encoder_;
+
+private CsvCodec(CsvSchema schema, Decoder<T> decoder, Encoder<T> encoder) {
+  m_schema_   = schema;
+  m_decoder_  = decoder;
+  m_encoder_  = encoder;
+  m_names_    = new String[schema.GetWidth()];
+  m_types_    = new CsvSchema.Type[schema.GetWidth()];
+  m_nullable_ = new boolean[schema.GetWidth()];
+  for (int i = 0; i < schema.GetWidth(); i++) {
+    m_names_[i]    = schema.GetColumn(i).GetName();
+    m_types_[i]    = schema.GetColumn(i).GetType();
+    m_nullable_[i] = schema.GetColumn(i).IsNullable();
+  }
+}
+
+/**
+ * Compile a schema into a codec, later changes to the schema do not affect the codec
+ *
+ * @param schema  columns of the csv
+ * @param decoder builds records from fields
+ * @param encoder takes records apart into fields
+ * @param <T>     record class
+ * @return the codec
+ */
+public static <T> CsvCodec<T> Compile(CsvSchema schema, Decoder<T> decoder, Encoder<T> encoder) {
+  return new CsvCodec<>(schema, decoder, encoder);
+}
+
+/**
+ * Get count of columns of the codec
+ *
+ * @return columns
+ */
+public int GetWidth() {
+  return m_types_.length;
+}
+
+/**
+ * Get the schema the codec is compiled from
+ *
+ * @return schema
+ */
+public CsvSchema GetSchema() {
+  return m_schema_;
+}
+
+/**
+ * Decode a row, fields out of the schema are ignored
+ *
+ * @param row fields of the row
+ * @return the record, null if the row is empty or skipped by the decoder
+ */
+public T Decode(List<String> row) {
+  if (row.stream()
+         .allMatch(String::isEmpty)) {
+    return null;
+  }
+  Fields fields = new Fields(this);
+  for (int i = 0; i < fields.m_states_.length && i < row.size(); i++) {
+    fields.Decode(i, row.get(i));
+  }
+  return m_decoder_.Apply(fields);
+}
+
+/**
+ * Encode a record into a row
+ *
+ * @param record the record
+ * @return fields of the row, empty fields are empty strings
+ * @throws Exceptions.IllegalFieldException if a non-nullable field is left empty
+ */
+public String[] Encode(T record) throws Exceptions.IllegalFieldException {
+  Fields   fields = Fill(record);
+  String[] ret    = new String[fields.m_states_.length];
+  for (int i = 0; i < ret.length; i++) {
+    if (fields.m_states_[i] == Fields.NULL) {
+      ret[i] = "";
+    } else {
+      ret[i] = m_types_[i] == CsvSchema.Type.INT ? String.valueOf(fields.m_ints_[i]) : fields.m_strings_[i];
+    }
+  }
+  return ret;
+}
+
+/**
+ * Encode a record as a row of the writer
+ *
+ * @param writer target
+ * @param record the record
+ * @return self, for chain-call
+ * @throws IOException                      if the target writer fails
+ * @throws Exceptions.IllegalFieldException if a non-nullable field is left empty
+ */
+public CsvCodec<T> Write(CsvWriter.RowWriter writer, T record) throws IOException, Exceptions.IllegalFieldException {
+  Fields fields = Fill(record);
+  for (int i = 0; i < fields.m_states_.length; i++) {
+    if (fields.m_states_[i] == Fields.NULL) {
+      writer.WriteField("");
+    } else if (m_types_[i] == CsvSchema.Type.INT) {
+      writer.WriteField(fields.m_ints_[i]);
+    } else {
+      writer.WriteField(fields.m_strings_[i]);
+    }
+  }
+  writer.EndRow();
+  return this;
+}
+
+/**
+ * Decode every row of a csv source and apply hook on the records, in order.
+ * Empty rows and rows skipped by the decoder are not passed to the hook.
+ *
+ * @param reader source reader, closed after all rows are processed
+ * @param hook   hook to be applied
+ * @return total records processed
+ * @throws IOException                       if the source reader fails
+ * @throws Exceptions.IllegalSyntaxException If the source is not in a valid csv format
+ */
+public long ForEachRecord(Reader reader, RecordHook<T> hook) throws IOException, Exceptions.IllegalSyntaxException {
+  try (reader) {
+    return ForEachRecord(new CsvTokenizer(reader, CsvTokenizer.DEFAULT_BUFFER_SIZE), false, hook);
+  } catch (UncheckedIOException e) {
+    throw e.getCause();
+  }
+}
+
+/**
+ * Decode every row of tokens and apply hook on the records, in order
+ *
+ * @param tokenizer   source tokens
+ * @param afterReturn if the source continues a csv just after a return
+ * @param hook        hook to be applied
+ * @return total records processed
+ * @throws Exceptions.IllegalSyntaxException If the source is not in a valid csv format
+ * @throws UncheckedIOException              If the reader behind the tokenizer fails
+ */
+long ForEachRecord(CsvTokenizer tokenizer, boolean afterReturn, RecordHook<T> hook)
+    throws Exceptions.IllegalSyntaxException, UncheckedIOException {
+  long    records     = 0;
+  Fields  fields      = new Fields(this);
+  boolean lastSplitor = afterReturn;
+  boolean empty       = true;
+  int     lastToken   = CsvTokenizer.END;
+  int     cols        = 0;
+
+  // Rows are split in the same way as CsvReader.RowIterator, empty fields are left null
+  for (int token; (token = tokenizer.Next()) != CsvTokenizer.END; ) {
+    lastToken = token;
+    switch (token) {
+      case '\n': case '\r':
+        records += Emit(fields, empty, hook);
+        fields.Clear();
+        empty       = true;
+        cols        = 0;
+        lastSplitor = true;
+        break;
+      case ',':
+        if (lastSplitor) {
+          cols++;
+        }
+        lastSplitor = true;
+        break;
+      default:
+        empty &= tokenizer.Length() == 0;
+        fields.Decode(cols++, tokenizer);
+        lastSplitor = false;
+        break;
+    }
+  }
+  if (lastToken != '\n' && lastToken != '\r') {
+    records += Emit(fields, empty, hook);
+  }
+  return records;
+}
+
+/**
+ * Decode every row of a UTF-8 encoded csv source and apply hook on the records, in order
+ *
+ * @param in   source stream, closed after all rows are processed
+ * @param hook hook to be applied
+ * @return total records processed
+ * @throws IOException                       if the source stream fails
+ * @throws Exceptions.IllegalSyntaxException If the source is not in a valid csv format
+ */
+public long ForEachRecord(InputStream in, RecordHook<T> hook) throws IOException, Exceptions.IllegalSyntaxException {
+  return ForEachRecord(new InputStreamReader(in, StandardCharsets.UTF_8), hook);
+}
+
+/**
+ * Decode every row of a UTF-8 encoded csv file and apply hook on the records, in order
+ *
+ * @param path csv file
+ * @param hook hook to be applied
+ * @return total records processed
+ * @throws IOException                       if the file is not readable
+ * @throws Exceptions.IllegalSyntaxException If the source is not in a valid csv format
+ */
+public long ForEachRecord(Path path, RecordHook<T> hook) throws IOException, Exceptions.IllegalSyntaxException {
+  return ForEachRecord(Files.newInputStream(path), hook);
+}
+
+private int Emit(Fields fields, boolean empty, RecordHook<T> hook) {
+  if (empty) {
+    return 0;
+  }
+  T record = m_decoder_.Apply(fields);
+  if (record == null) {
+    return 0;
+  }
+  hook.Apply(record);
+  return 1;
+}
+
+private Fields Fill(T record) throws Exceptions.IllegalFieldException {
+  Fields fields = new Fields(this);
+  m_encoder_.Apply(record, fields);
+  for (int i = 0; i < fields.m_states_.length; i++) {
+    if (fields.m_states_[i] == Fields.NULL && ! m_nullable_[i]) {
+      throw new Exceptions.IllegalFieldException("Column " + m_names_[i] + " cannot be empty");
+    }
+  }
+  return fields;
+}
+
+}
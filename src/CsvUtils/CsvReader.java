@@ -1,10 +1,148 @@
 package CsvUtils;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 public class CsvReader {
 
+/**
+ * Callback applied on every row of a streamed csv source
+ */
+public interface RowHook {
+
+  /**
+   * Apply the hook to a row
+   *
+   * @param row fields of the row
+   */
+  void Apply(String[] row);
+}
+
+/**
+ * Pull rows one by one from a csv source.
+ * <p>
+ * Rows are the same as the lines {@link #ConstructTableFromCSV(String)} would produce, but they are not padded to
+ * the widest row of the source. Only one row and a fixed size buffer are held at a time.
+ */
+public static class RowIterator
+    implements Iterator<String[]>, Closeable {
+  private final CsvTokenizer m_tokenizer_;
+  private final Reader       m_reader_;
+  private final List<String> m_row_       = new ArrayList<>();
+  private       boolean      m_lastSplitor_;
+  private       int          m_lastToken_ = CsvTokenizer.END;
+  private       boolean      m_finished_  = false;
+  private       String[]     m_next_;
+
+  /**
+   * Construct a row iterator
+   *
+   * @param reader     source reader, closed along with the iterator
+   * @param bufferSize How many characters to be buffered at most
+   */
+  public RowIterator(Reader reader, int bufferSize) {
+    this(new CsvTokenizer(reader, bufferSize), reader, false);
+  }
+
+  /**
+   * Construct a row iterator over tokens
+   *
+   * @param tokenizer   source tokens
+   * @param reader      reader behind the tokenizer, null if source is in memory
+   * @param afterReturn if the source continues a csv just after a return
+   */
+  RowIterator(CsvTokenizer tokenizer, Reader reader, boolean afterReturn) {
+    m_tokenizer_   = tokenizer;
+    m_reader_      = reader;
+    m_lastSplitor_ = afterReturn;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws Exceptions.IllegalSyntaxException If the source is not in a valid csv format
+   * @throws UncheckedIOException              If the source reader fails
+   */
+  @Override
+  public boolean hasNext() throws Exceptions.IllegalSyntaxException, UncheckedIOException {
+    if (m_next_ == null && ! m_finished_) {
+      m_next_ = Advance();
+    }
+    return m_next_ != null;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws Exceptions.IllegalSyntaxException If the source is not in a valid csv format
+   * @throws UncheckedIOException              If the source reader fails
+   */
+  @Override
+  public String[] next() throws Exceptions.IllegalSyntaxException, UncheckedIOException {
+    if (! hasNext()) {
+      throw new NoSuchElementException("No more rows in the csv source");
+    }
+    String[] ret = m_next_;
+    m_next_ = null;
+    return ret;
+  }
+
+  @Override
+  public void close() throws IOException {
+    m_finished_ = true;
+    m_next_     = null;
+    if (m_reader_ != null) {
+      m_reader_.close();
+    }
+  }
+
+  private String[] Advance() {
+    for (int token; (token = m_tokenizer_.Next()) != CsvTokenizer.END; ) {
+      m_lastToken_ = token;
+      switch (token) {
+        case '\n': case '\r':
+          if (m_lastSplitor_) {
+            m_row_.add("");
+          }
+          m_lastSplitor_ = true;
+          return Emit();
+        case ',':
+          if (m_lastSplitor_) {
+            m_row_.add("");
+          }
+          m_lastSplitor_ = true;
+          break;
+        default:
+          m_row_.add(m_tokenizer_.Value());
+          m_lastSplitor_ = false;
+          break;
+      }
+    }
+    m_finished_ = true;
+
+    // If source is end with return
+    // Then there is no more line
+    return m_lastToken_ == '\n' || m_lastToken_ == '\r' ? null : Emit();
+  }
+
+  private String[] Emit() {
+    String[] ret = m_row_.toArray(new String[0]);
+    m_row_.clear();
+    return ret;
+  }
+}
+
 /**
  * Get Next Token From source
  *
@@ -19,7 +157,7 @@ public static String NextToken(String src) throws Exceptions.IllegalSyntaxExcept
 
   loop:
   for (int currentPosition = 0; ! src.isEmpty() && currentPosition < src.length(); currentPosition++) {
-    Character c = src.charAt(currentPosition);
+    char c = src.charAt(currentPosition);
     switch (c) {
       case ',': case '\n': case '\r':
         if (0 == currentPosition) {
@@ -58,7 +196,7 @@ public static String ParseToken(String token) throws Exceptions.IllegalSyntaxExc
 
   loop:
   for (int currentPosition = 0; ! token.isEmpty() && currentPosition < token.length(); currentPosition++) {
-    Character c = token.charAt(currentPosition);
+    char c = token.charAt(currentPosition);
     switch (c) {
       case '"':
         if (currentPosition == 0) {
@@ -108,14 +246,15 @@ public static String ParseToken(String token) throws Exceptions.IllegalSyntaxExc
  * @return a Table object to be manipulated
  */
 public static Table ConstructTableFromCSV(String src) {
-  Table   ret         = new Table();
-  boolean lastSplitor = false;
-  String  token;
-  char    c           = '\0';
+  Table        ret         = new Table();
+  CsvTokenizer tokenizer   = new CsvTokenizer(src);
+  boolean      lastSplitor = false;
+  int          token;
+  char         c           = '\0';
 
   ret.InsertLine();
-  for (int rows = 0, cols = 0; ! (token = NextToken(src)).isEmpty(); ) {
-    c = token.charAt(0);
+  for (int rows = 0, cols = 0; (token = tokenizer.Next()) != CsvTokenizer.END; ) {
+    c = (char) token;
     switch (c) {
       case '\n': case '\r':
         ret.InsertLine();
@@ -129,12 +268,11 @@ public static Table ConstructTableFromCSV(String src) {
         lastSplitor = true;
         break;
       default:
-        ret.InsertElement(rows, ParseToken(token), true);
+        ret.InsertElement(rows, tokenizer.Value(), true);
         cols++;
         lastSplitor = false;
         break;
     }
-    src = src.substring(token.length());
   }
 
   // If source is end with return
@@ -153,17 +291,18 @@ public static Table ConstructTableFromCSV(String src) {
  * @return a Table object to be manipulated
  */
 public static Table ConstructTableFromCSV(String src, boolean hastitle) {
-  Table   ret         = new Table();
-  boolean lastSplitor = false;
-  String  token;
-  char    c           = '\0';
+  Table        ret         = new Table();
+  CsvTokenizer tokenizer   = new CsvTokenizer(src);
+  boolean      lastSplitor = false;
+  int          token       = CsvTokenizer.END;
+  char         c           = '\0';
 
   ret.InsertLine();
 
   List<String> title = new ArrayList<>();
   loop:
-  for (int cols = 0; hastitle && ! (token = NextToken(src)).isEmpty(); ) {
-    c = token.charAt(0);
+  for (int cols = 0; hastitle && (token = tokenizer.Next()) != CsvTokenizer.END; ) {
+    c = (char) token;
     switch (c) {
       case '\n': case '\r':
         ret.SetTitle(title);
@@ -176,16 +315,17 @@ public static Table ConstructTableFromCSV(String src, boolean hastitle) {
         lastSplitor = true;
         break;
       default:
-        title.add(ParseToken(token));
+        title.add(tokenizer.Value());
         cols++;
         lastSplitor = false;
         break;
     }
-    src = src.substring(token.length());
   }
 
-  for (int rows = 0, cols = 0; ! (token = NextToken(src)).isEmpty(); ) {
-    c = token.charAt(0);
+  // The return which ends the title is processed again as the first token of the contents
+  boolean pending = token != CsvTokenizer.END;
+  for (int rows = 0, cols = 0; pending || (token = tokenizer.Next()) != CsvTokenizer.END; pending = false) {
+    c = (char) token;
     switch (c) {
       case '\n': case '\r':
         ret.InsertLine();
@@ -199,12 +339,11 @@ public static Table ConstructTableFromCSV(String src, boolean hastitle) {
         lastSplitor = true;
         break;
       default:
-        ret.SetElement(rows, cols, ParseToken(token));
+        ret.SetElement(rows, cols, tokenizer.Value());
         cols++;
         lastSplitor = false;
         break;
     }
-    src = src.substring(token.length());
   }
 
   // If source is end with return
@@ -215,5 +354,81 @@ public static Table ConstructTableFromCSV(String src, boolean hastitle) {
   return ret;
 }
 
+/**
+ * Open a csv source for streaming
+ *
+ * @param reader source reader, closed along with the iterator
+ * @return iterator over rows of the source
+ */
+public static RowIterator IterateRows(Reader reader) {
+  return new RowIterator(reader, CsvTokenizer.DEFAULT_BUFFER_SIZE);
+}
+
+/**
+ * Open a UTF-8 encoded csv source for streaming
+ *
+ * @param in source stream, closed along with the iterator
+ * @return iterator over rows of the source
+ */
+public static RowIterator IterateRows(InputStream in) {
+  return IterateRows(new InputStreamReader(in, StandardCharsets.UTF_8));
+}
+
+/**
+ * Open a UTF-8 encoded csv file for streaming
+ *
+ * @param path csv file
+ * @return iterator over rows of the file
+ * @throws IOException if the file is not readable
+ */
+public static RowIterator IterateRows(Path path) throws IOException {
+  return IterateRows(Files.newInputStream(path));
+}
+
+/**
+ * Apply hook on every row of a csv source, in order
+ *
+ * @param reader source reader, closed after all rows are processed
+ * @param hook   hook to be applied
+ * @return total rows processed
+ * @throws IOException if the source reader fails
+ */
+public static long ForEachRow(Reader reader, RowHook hook) throws IOException {
+  long rows = 0;
+  try (RowIterator it = IterateRows(reader)) {
+    while (it.hasNext()) {
+      hook.Apply(it.next());
+      rows++;
+    }
+  } catch (UncheckedIOException e) {
+    throw e.getCause();
+  }
+  return rows;
+}
+
+/**
+ * Apply hook on every row of a UTF-8 encoded csv source, in order
+ *
+ * @param in   source stream, closed after all rows are processed
+ * @param hook hook to be applied
+ * @return total rows processed
+ * @throws IOException if the source stream fails
+ */
+public static long ForEachRow(InputStream in, RowHook hook) throws IOException {
+  return ForEachRow(new InputStreamReader(in, StandardCharsets.UTF_8), hook);
+}
+
+/**
+ * Apply hook on every row of a UTF-8 encoded csv file, in order
+ *
+ * @param path csv file
+ * @param hook hook to be applied
+ * @return total rows processed
+ * @throws IOException if the file is not readable
+ */
+public static long ForEachRow(Path path, RowHook hook) throws IOException {
+  return ForEachRow(Files.newInputStream(path), hook);
+}
+
 }
 
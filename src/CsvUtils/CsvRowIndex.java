@@ -0,0 +1,307 @@
+package CsvUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Offset index of a UTF-8 encoded csv file, maps the first element of every row to where its rows lie in the file.
+ * <p>
+ * The file is streamed once through a fixed size buffer and scanned for returns outside quotations, following the
+ * same rules as {@link ParallelCsvReader}. Only the byte offsets of rows are kept, rows are read back from the file
+ * and parsed when their key is looked up. Keys are trimmed, rows with an empty key are not indexed.
+ * <p>
+ * The file is only open while it is scanned or rows are read, so it may be replaced by a rename while the index is in
+ * use, as long as no more rows are looked up afterwards. The file must not be modified otherwise while the index is in
+ * use. The index is immutable and may be shared between threads.
+ */
+public class CsvRowIndex {
+private static final int BUFFER_SIZE = 1 << 16;  // bytes read at once while scanning
+
+private final Path                   m_path_;
+private final HashMap<String, Spans> m_rows_ = new HashMap<>();  // key to spans of its rows
+
+/**
+ * Byte spans of rows sharing a key, in file order. Adjacent spans are merged.
+ */
+private static final class Spans {
+  private int[] m_bounds_ = new int[2];  // begin and end of every span
+  private int   m_size_   = 0;           // count of bounds in use
+
+  void Add(int begin, int end) {
+    if (m_size_ > 0 && m_bounds_[m_size_ - 1] == begin) {
+      m_bounds_[m_size_ - 1] = end;
+      return;
+    }
+    if (m_size_ == m_bounds_.length) {
+      m_bounds_ = Arrays.copyOf(m_bounds_, m_bounds_.length * 2);
+    }
+    m_bounds_[m_size_++] = begin;
+    m_bounds_[m_size_++] = end;
+  }
+}
+
+/**
+ * A window of the file read at once, moved forward as the file is scanned
+ */
+private static final class Window {
+  private final FileChannel m_channel_;
+  private final int         m_size_;                                             // size of the file
+  private final ByteBuffer  m_buffer_ = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+  private       int         m_start_  = 0;                                       // offset of the first byte in buffer
+
+  Window(FileChannel channel, int size) {
+    m_channel_ = channel;
+    m_size_    = size;
+  }
+
+  /**
+   * Get a byte of the file, at or after the bytes got before
+   */
+  byte Get(int offset) throws IOException {
+    if (offset >= m_start_ + m_buffer_.limit()) {
+      m_start_ = offset;
+      m_buffer_.clear()
+               .limit(Math.min(BUFFER_SIZE, m_size_ - offset));
+      ReadFully(m_channel_, m_buffer_, offset);
+    }
+    return m_buffer_.get(offset - m_start_);
+  }
+}
+
+private CsvRowIndex(Path path) {
+  m_path_ = path;
+}
+
+/**
+ * Build the index of a csv file
+ *
+ * @param path csv file
+ * @return the index
+ * @throws IOException                       if the file is not readable or not smaller than 2GB
+ * @throws Exceptions.IllegalSyntaxException If the first element of a row is not in a valid csv format
+ */
+public static CsvRowIndex Build(Path path) throws IOException, Exceptions.IllegalSyntaxException {
+  try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+    long size = channel.size();
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException(String.format("File %s is too large to be indexed, %d bytes", path, size));
+    }
+    CsvRowIndex index = new CsvRowIndex(path);
+    index.Scan(channel, (int) size);
+    return index;
+  }
+}
+
+/**
+ * Split the file into rows and index them by their first element
+ *
+ * @param channel the file
+ * @param size    size of the file
+ * @throws IOException if the file is not readable
+ */
+private void Scan(FileChannel channel, int size) throws IOException {
+  Window                src          = new Window(channel, size);
+  ByteArrayOutputStream key          = new ByteArrayOutputStream();  // bytes of the first element
+  int                   rowBegin     = 0;
+  boolean               keyEnded     = false;   // if the first element has ended
+  boolean               quoted       = false;   // if the first element is quoted
+  boolean               elementStart = true;
+
+  for (int i = 0; i < size; i++) {
+    byte b = src.Get(i);
+    if (elementStart && b == '"') {
+      // Skip quoted contents, returns and splitors in between do not end an element
+      quoted |= ! keyEnded;
+      byte c = b;
+      do {
+        if (! keyEnded) {
+          key.write(c);
+        }
+        i++;
+      } while (i < size && (c = src.Get(i)) != '"');
+      if (i < size && ! keyEnded) {
+        key.write(c);
+      }
+      elementStart = false;
+      continue;
+    }
+    switch (b) {
+      case '\n': case '\r':
+        // Take following returns into the row, so rows ending with "\r\n" and empty lines are kept together
+        int end = i + 1;
+        while (end < size && (src.Get(end) == '\n' || src.Get(end) == '\r')) {
+          end++;
+        }
+        Index(channel, rowBegin, key, end, quoted);
+        rowBegin     = end;
+        keyEnded     = false;
+        quoted       = false;
+        elementStart = true;
+        key.reset();
+        i            = end - 1;
+        break;
+      case ',':
+        keyEnded     = true;
+        elementStart = true;
+        break;
+      default:
+        if (! keyEnded) {
+          key.write(b);
+        }
+        elementStart = false;
+        break;
+    }
+  }
+  if (rowBegin < size) {
+    Index(channel, rowBegin, key, size, quoted);
+  }
+}
+
+/**
+ * Index a row by its first element
+ *
+ * @param channel the file
+ * @param begin   where the row starts
+ * @param key     bytes of the first element
+ * @param end     where the row ends, after its returns
+ * @param quoted  if the first element is quoted
+ * @throws IOException if the file is not readable
+ */
+private void Index(FileChannel channel, int begin, ByteArrayOutputStream key, int end, boolean quoted)
+    throws IOException {
+  String ret;
+  if (begin == 0) {
+    // The first row, whose leading empty element is dropped, is parsed the same way as a reader
+    ret = FirstElement(StandardCharsets.UTF_8.decode(ReadSpan(channel, begin, end)), false);
+  } else if (quoted) {
+    ret = FirstElement(StandardCharsets.UTF_8.decode(ByteBuffer.wrap(key.toByteArray())), true);
+  } else {
+    ret = key.toString(StandardCharsets.UTF_8).trim();
+  }
+  if (! ret.isEmpty()) {
+    m_rows_.computeIfAbsent(ret, k -> new Spans())
+           .Add(begin, end);
+  }
+}
+
+/**
+ * Parse the first element of a row
+ *
+ * @param src         the row, or its first element
+ * @param afterReturn if the row follows a return
+ * @return the trimmed element, empty if none
+ */
+private static String FirstElement(CharSequence src, boolean afterReturn) {
+  CsvReader.RowIterator it  = new CsvReader.RowIterator(new CsvTokenizer(src), null, afterReturn);
+  String[]              row = it.hasNext() ? it.next() : null;
+  return row == null || row.length == 0 || row[0] == null ? "" : row[0].trim();
+}
+
+/**
+ * Check if any row has the key
+ *
+ * @param key first element of rows
+ * @return true if indexed
+ */
+public boolean Contains(String key) {
+  return m_rows_.containsKey(key);
+}
+
+/**
+ * Get count of distinct keys
+ *
+ * @return count of keys
+ */
+public int Size() {
+  return m_rows_.size();
+}
+
+/**
+ * Get all keys
+ *
+ * @return unmodifiable set of keys
+ */
+public Set<String> Keys() {
+  return Collections.unmodifiableSet(m_rows_.keySet());
+}
+
+/**
+ * Read rows having the key from the file, then decode them and apply hook on the records, in file order
+ *
+ * @param key   first element of rows
+ * @param codec codec of the rows
+ * @param hook  hook to be applied
+ * @param <T>   type of records
+ * @return total records processed
+ * @throws IOException                       if the file is not readable or shorter than indexed
+ * @throws Exceptions.IllegalSyntaxException If a row is not in a valid csv format
+ */
+public <T> long ForEachRecord(String key, CsvCodec<T> codec, CsvCodec.RecordHook<T> hook)
+    throws IOException, Exceptions.IllegalSyntaxException {
+  Spans spans = m_rows_.get(key);
+  if (spans == null) {
+    return 0;
+  }
+
+  // Read every span before parsing, so the file is open only for reading
+  List<ByteBuffer> bytes = new ArrayList<>(spans.m_size_ / 2);
+  try (FileChannel channel = FileChannel.open(m_path_, StandardOpenOption.READ)) {
+    for (int i = 0; i < spans.m_size_; i += 2) {
+      bytes.add(ReadSpan(channel, spans.m_bounds_[i], spans.m_bounds_[i + 1]));
+    }
+  }
+
+  long records = 0;
+  for (int i = 0; i < bytes.size(); i++) {
+    CsvTokenizer tokenizer = new CsvTokenizer(StandardCharsets.UTF_8.decode(bytes.get(i)));
+    records += codec.ForEachRecord(tokenizer, spans.m_bounds_[i * 2] > 0, hook);
+  }
+  return records;
+}
+
+/**
+ * Read part of the file.
+ * Rows are split just after returns, the encoding of which never lies inside a multibyte character.
+ *
+ * @param channel the file
+ * @param begin   where to start, inclusive
+ * @param end     where to stop, exclusive
+ * @return the bytes read, ready to be got
+ * @throws IOException if the file is not readable or ends before the span
+ */
+private static ByteBuffer ReadSpan(FileChannel channel, int begin, int end) throws IOException {
+  ByteBuffer ret = ByteBuffer.allocate(end - begin);
+  ReadFully(channel, ret, begin);
+  return ret.flip();
+}
+
+/**
+ * Fill the remaining of a buffer from a position of a file
+ *
+ * @param channel the file
+ * @param buffer  the buffer
+ * @param pos     where to start reading
+ * @throws IOException if the file is not readable or ends before the buffer is filled
+ */
+private static void ReadFully(FileChannel channel, ByteBuffer buffer, long pos) throws IOException {
+  while (buffer.hasRemaining()) {
+    int n = channel.read(buffer, pos);
+    if (n < 0) {
+      throw new IOException("File ends at " + pos + " before the indexed rows, it has changed since indexed");
+    }
+    pos += n;
+  }
+}
+
+}
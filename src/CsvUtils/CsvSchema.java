@@ -0,0 +1,123 @@
+package CsvUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes columns of a csv source: their names, types and whether they may be empty.
+ * <p>
+ * A schema is compiled into a {@link CsvCodec} to bind rows to record classes.
+ */
+public class CsvSchema {
+
+/**
+ * Type of values in a column
+ */
+public enum Type {
+  /**
+   * Text, surrounding spaces are trimmed
+   */
+  STRING,
+  /**
+   * Decimal integer, surrounding spaces are ignored
+   */
+  INT
+}
+
+/**
+ * A column of the schema
+ */
+public static final class Column {
+  private final String  m_name_;
+  private final Type    m_type_;
+  private final boolean m_nullable_;
+
+  private Column(String name, Type type, boolean nullable) {
+    m_name_     = name;
+    m_type_     = type;
+    m_nullable_ = nullable;
+  }
+
+  /**
+   * Get name of the column
+   *
+   * @return name
+   */
+  public String GetName() {
+    return m_name_;
+  }
+
+  /**
+   * Get type of values in the column
+   *
+   * @return type
+   */
+  public Type GetType() {
+    return m_type_;
+  }
+
+  /**
+   * Get if the column may be empty
+   *
+   * @return true if the column may be empty
+   */
+  public boolean IsNullable() {
+    return m_nullable_;
+  }
+}
+
+private final List<Column> m_columns_ = new ArrayList<>();  // columns, in order
+
+/**
+ * Append a column to the schema
+ *
+ * @param name     name of the column
+ * @param type     type of values in the column
+ * @param nullable if the column may be empty
+ * @return self, for chain-call
+ * @throws IllegalArgumentException if there is already a column of the name
+ */
+public CsvSchema AddColumn(String name, Type type, boolean nullable) throws IllegalArgumentException {
+  if (IndexOf(name) >= 0) {
+    throw new IllegalArgumentException("Duplicate column name: " + name);
+  }
+  m_columns_.add(new Column(name, type, nullable));
+  return this;
+}
+
+/**
+ * Get count of columns
+ *
+ * @return columns
+ */
+public int GetWidth() {
+  return m_columns_.size();
+}
+
+/**
+ * Get `col' column
+ *
+ * @param col column index
+ * @return column
+ * @throws IndexOutOfBoundsException if the col is out of bound
+ */
+public Column GetColumn(int col) throws IndexOutOfBoundsException {
+  return m_columns_.get(col);
+}
+
+/**
+ * Get index of the column of the name
+ *
+ * @param name name of the column
+ * @return column index, -1 if there is no such column
+ */
+public int IndexOf(String name) {
+  for (int i = 0; i < m_columns_.size(); i++) {
+    if (m_columns_.get(i).m_name_.equals(name)) {
+      return i;
+    }
+  }
+  return - 1;
+}
+
+}
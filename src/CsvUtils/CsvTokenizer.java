@@ -0,0 +1,323 @@
+package CsvUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+
+/**
+ * Cursor over a csv source, walks the source exactly once.
+ * <p>
+ * Yields the same tokens as repeatedly calling {@link CsvReader#NextToken(String)} and
+ * {@link CsvReader#ParseToken(String)}, without copying the remaining source for every token.
+ * The source is either held in memory, or pulled from a {@link Reader} through a fixed size buffer.
+ * Unquoted values are left in the source until {@link #Value()} is called, so they can be parsed in place.
+ */
+class CsvTokenizer {
+public static final int END                 = - 1;
+public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+private final Reader        m_reader_;                          // source reader, null if source is in memory
+private final char[]        m_buffer_;                          // buffer for source reader
+private final CharSequence  m_src_;                             // source, or view of the buffer
+private final StringBuilder m_builder_  = new StringBuilder();  // value spans over buffer boundaries
+private       int           m_end_;                             // end of the source, exclusive
+private       int           m_position_;                        // cursor
+private       int           m_mark_;                            // where the unfinished value starts
+private       String        m_value_;                           // parsed value of the current token
+private       boolean       m_pending_;                         // current value is not taken from the source yet
+
+/**
+ * Construct a tokenizer over the whole source
+ *
+ * @param src Source to be processed
+ */
+CsvTokenizer(CharSequence src) {
+  this(src, 0, src.length());
+}
+
+/**
+ * Construct a tokenizer over part of the source
+ *
+ * @param src   Source to be processed
+ * @param begin where to start, inclusive
+ * @param end   where to stop, exclusive
+ */
+CsvTokenizer(CharSequence src, int begin, int end) {
+  m_reader_   = null;
+  m_buffer_   = null;
+  m_src_      = src;
+  m_position_ = begin;
+  m_end_      = end;
+}
+
+/**
+ * Construct a tokenizer pulling source from a reader
+ *
+ * @param reader     Source reader, not closed by the tokenizer
+ * @param bufferSize How many characters to be buffered at most
+ * @throws IllegalArgumentException if bufferSize is not positive
+ */
+CsvTokenizer(Reader reader, int bufferSize) throws IllegalArgumentException {
+  if (bufferSize <= 0) {
+    throw new IllegalArgumentException("Buffer size must be positive, the argument provided " + bufferSize);
+  }
+  m_reader_   = reader;
+  m_buffer_   = new char[bufferSize];
+  m_src_      = CharBuffer.wrap(m_buffer_);
+  m_position_ = 0;
+  m_end_      = 0;
+}
+
+/**
+ * Move the cursor to next token
+ *
+ * @return first character of the token, {@link #END} if reaches end of source
+ * @throws Exceptions.IllegalSyntaxException If the source is not in a valid csv format
+ * @throws UncheckedIOException              If the source reader fails
+ */
+int Next() throws Exceptions.IllegalSyntaxException, UncheckedIOException {
+  Drop();
+  if (! Available()) {
+    return END;
+  }
+  char c = m_src_.charAt(m_position_);
+  switch (c) {
+    case ',': case '\n': case '\r':
+      m_position_++;
+      break;
+    case '"':
+      m_value_ = ScanQuoted();
+      break;
+    default:
+      ScanPlain();
+      break;
+  }
+  return c;
+}
+
+/**
+ * Get parsed value of current token
+ *
+ * @return parsed value, null if current token is a splitor
+ */
+String Value() {
+  if (m_pending_) {
+    m_value_   = Take();
+    m_pending_ = false;
+  }
+  return m_value_;
+}
+
+/**
+ * Get length of current value
+ *
+ * @return length of the value, 0 if current token is a splitor
+ */
+int Length() {
+  if (m_pending_) {
+    return m_builder_.length() + m_position_ - m_mark_;
+  }
+  return m_value_ == null ? 0 : m_value_.length();
+}
+
+/**
+ * Check if current value is empty after trimmed
+ *
+ * @return true if the value contains only spaces, or current token is a splitor
+ */
+boolean IsBlank() {
+  if (m_pending_) {
+    return m_builder_.length() == 0 ? IsBlank(m_src_, m_mark_, m_position_) : IsBlank(Join(), 0, m_builder_.length());
+  }
+  return m_value_ == null || m_value_.isBlank();
+}
+
+/**
+ * Parse current value as a decimal int, without materializing unquoted values
+ *
+ * @return the int
+ * @throws NumberFormatException if the value is not a valid int, or current token is a splitor
+ */
+int IntValue() throws NumberFormatException {
+  if (m_pending_) {
+    // A value is split only if it spans over buffer boundaries
+    return m_builder_.length() == 0 ? ParseInt(m_src_, m_mark_, m_position_) : ParseInt(Join(), 0, m_builder_.length());
+  }
+  if (m_value_ == null) {
+    throw new NumberFormatException("A splitor is not a number");
+  }
+  return ParseInt(m_value_, 0, m_value_.length());
+}
+
+/**
+ * Parse a decimal int in the same way as {@link Integer#parseInt(String)}, surrounding spaces are ignored
+ *
+ * @param src   characters to be parsed
+ * @param begin where to start, inclusive
+ * @param end   where to stop, exclusive
+ * @return the int
+ * @throws NumberFormatException if the characters are not a valid int
+ */
+static int ParseInt(CharSequence src, int begin, int end) throws NumberFormatException {
+  while (begin < end && src.charAt(begin) <= ' ') {
+    begin++;
+  }
+  while (end > begin && src.charAt(end - 1) <= ' ') {
+    end--;
+  }
+  boolean negative = begin < end && src.charAt(begin) == '-';
+  int     i        = begin < end && (negative || src.charAt(begin) == '+') ? begin + 1 : begin;
+  if (i == end) {
+    throw new NumberFormatException("For input string: \"" + src.subSequence(begin, end) + "\"");
+  }
+
+  // Accumulate negatively so that Integer.MIN_VALUE does not overflow
+  int limit      = negative ? Integer.MIN_VALUE : - Integer.MAX_VALUE;
+  int multiplier = limit / 10;
+  int ret        = 0;
+  for (; i < end; i++) {
+    int digit = Character.digit(src.charAt(i), 10);
+    if (digit < 0 || ret < multiplier || ret * 10 < limit + digit) {
+      throw new NumberFormatException("For input string: \"" + src.subSequence(begin, end) + "\"");
+    }
+    ret = ret * 10 - digit;
+  }
+  return negative ? ret : - ret;
+}
+
+static boolean IsSplitor(char c) {
+  return c == ',' || c == '\n' || c == '\r';
+}
+
+private static boolean IsBlank(CharSequence src, int begin, int end) {
+  for (int i = begin; i < end; i++) {
+    if (src.charAt(i) > ' ') {
+      return false;
+    }
+  }
+  return true;
+}
+
+/**
+ * Forget current value, the characters it occupies are not needed any more
+ */
+private void Drop() {
+  m_value_ = null;
+  if (m_pending_) {
+    m_builder_.setLength(0);
+    m_mark_    = m_position_;
+    m_pending_ = false;
+  }
+}
+
+/**
+ * Move the part of current value still in the source into builder, if the value is split
+ *
+ * @return builder
+ */
+private StringBuilder Join() {
+  if (m_builder_.length() > 0) {
+    m_builder_.append(m_src_, m_mark_, m_position_);
+    m_mark_ = m_position_;
+  }
+  return m_builder_;
+}
+
+/**
+ * Make sure there is a character under the cursor, must not be called inside a value
+ *
+ * @return false if reaches end of source
+ */
+private boolean Available() {
+  if (m_position_ < m_end_) {
+    return true;
+  }
+  m_mark_ = m_position_;
+  return Fill();
+}
+
+/**
+ * Load next block from source reader, the cursor must have reached the end of buffer.
+ * Characters of the unfinished value are moved into builder before being overwritten.
+ *
+ * @return false if reaches end of source
+ * @throws UncheckedIOException If the source reader fails
+ */
+private boolean Fill() throws UncheckedIOException {
+  if (m_reader_ == null) {
+    return false;
+  }
+  m_builder_.append(m_buffer_, m_mark_, m_position_ - m_mark_);
+  m_mark_ = m_position_;
+  int n;
+  try {
+    do {
+      n = m_reader_.read(m_buffer_, 0, m_buffer_.length);
+    } while (n == 0);
+  } catch (IOException e) {
+    throw new UncheckedIOException(e);
+  }
+  if (n < 0) {
+    return false;
+  }
+  m_mark_     = 0;
+  m_position_ = 0;
+  m_end_      = n;
+  return true;
+}
+
+/**
+ * Finish the unfinished value at the cursor
+ *
+ * @return the value
+ */
+private String Take() {
+  String ret;
+  if (m_builder_.length() == 0) {
+    ret = m_src_.subSequence(m_mark_, m_position_)
+                .toString();
+  } else {
+    ret = m_builder_.append(m_src_, m_mark_, m_position_)
+                    .toString();
+    m_builder_.setLength(0);
+  }
+  m_mark_ = m_position_;
+  return ret;
+}
+
+private void ScanPlain() {
+  m_mark_ = m_position_;
+  do {
+    while (m_position_ < m_end_ && ! IsSplitor(m_src_.charAt(m_position_))) {
+      m_position_++;
+    }
+  } while (m_position_ >= m_end_ && Fill());
+  m_pending_ = true;
+}
+
+private String ScanQuoted() throws Exceptions.IllegalSyntaxException {
+  m_mark_ = ++ m_position_;
+  do {
+    while (m_position_ < m_end_ && m_src_.charAt(m_position_) != '"') {
+      m_position_++;
+    }
+  } while (m_position_ >= m_end_ && Fill());
+  String ret = Take();
+
+  int quotes = 0;
+  while (Available() && m_src_.charAt(m_position_) == '"') {
+    m_position_++;
+    quotes++;
+  }
+
+  // Only a splitor may follow the closing quotation, and the quotations must pair up
+  // except the closing one
+  if ((Available() && ! IsSplitor(m_src_.charAt(m_position_))) || quotes % 2 == 0) {
+    throw new Exceptions.IllegalSyntaxException(
+        "A CSV element must end with quotation if the element is start with quotation");
+  }
+  return quotes == 1 ? ret : ret + "\"".repeat(quotes / 2);
+}
+
+}
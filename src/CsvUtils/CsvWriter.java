@@ -1,6 +1,211 @@
 package CsvUtils;
 
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
 public class CsvWriter {
+public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+/**
+ * Write rows one by one into a buffered writer, no whole content is held in memory
+ */
+public static class RowWriter
+    implements Closeable, Flushable {
+  private final Writer  m_writer_;
+  private final char[]  m_digits_ = new char[11];  // digits of an int, sign included
+  private       boolean m_inRow_  = false;         // if a field of current row has been written
+
+  /**
+   * Construct a row writer
+   *
+   * @param writer target writer, buffered if it is not, closed along with the row writer
+   */
+  public RowWriter(Writer writer) {
+    m_writer_ = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Write a row
+   *
+   * @param fields fields of the row
+   * @return self, for chain-call
+   * @throws IOException          if the target writer fails
+   * @throws NullPointerException if any field is null
+   */
+  public RowWriter WriteRow(String... fields) throws IOException, NullPointerException {
+    for (String field : fields) {
+      WriteField(field);
+    }
+    return EndRow();
+  }
+
+  /**
+   * Write a row
+   *
+   * @param fields fields of the row
+   * @return self, for chain-call
+   * @throws IOException          if the target writer fails
+   * @throws NullPointerException if any field is null
+   */
+  public RowWriter WriteRow(List<String> fields) throws IOException, NullPointerException {
+    for (String field : fields) {
+      WriteField(field);
+    }
+    return EndRow();
+  }
+
+  /**
+   * Write a field at the end of current row
+   *
+   * @param field the field
+   * @return self, for chain-call
+   * @throws IOException          if the target writer fails
+   * @throws NullPointerException if the field is null
+   */
+  public RowWriter WriteField(String field) throws IOException, NullPointerException {
+    if (field == null) {
+      throw new NullPointerException("String cannot be null");
+    }
+    Separate();
+    WriteToken(m_writer_, field);
+    return this;
+  }
+
+  /**
+   * Write an int field at the end of current row, digits are written without making a string
+   *
+   * @param field the field
+   * @return self, for chain-call
+   * @throws IOException if the target writer fails
+   */
+  public RowWriter WriteField(int field) throws IOException {
+    Separate();
+    int  i = m_digits_.length;
+    long v = Math.abs((long) field);
+    do {
+      m_digits_[--i] = (char) ('0' + v % 10);
+      v /= 10;
+    } while (v > 0);
+    if (field < 0) {
+      m_digits_[--i] = '-';
+    }
+    m_writer_.write(m_digits_, i, m_digits_.length - i);
+    return this;
+  }
+
+  /**
+   * Finish current row
+   *
+   * @return self, for chain-call
+   * @throws IOException if the target writer fails
+   */
+  public RowWriter EndRow() throws IOException {
+    m_writer_.write('\n');
+    m_inRow_ = false;
+    return this;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    m_writer_.flush();
+  }
+
+  private void Separate() throws IOException {
+    if (m_inRow_) {
+      m_writer_.write(',');
+    }
+    m_inRow_ = true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    m_writer_.close();
+  }
+}
+
+/**
+ * Write rows into a temporary file which replaces the target file on commit, so the target file always holds
+ * either the old or the new content, even if the process crashes while writing.
+ * <p>
+ * The temporary file is created next to the target, it is synced to the disk and renamed over the target on
+ * commit. Closing without committing discards the temporary file and leaves the target untouched.
+ */
+public static class AtomicRowWriter extends RowWriter {
+  private final Path             m_target_;             // file to replace
+  private final Path             m_temp_;               // file rows are written into
+  private final FileOutputStream m_out_;                // stream of the temporary file
+  private       boolean          m_committed_ = false;  // if the target has been replaced
+
+  private AtomicRowWriter(Path target, Path temp, FileOutputStream out) {
+    super(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    m_target_ = target;
+    m_temp_   = temp;
+    m_out_    = out;
+  }
+
+  /**
+   * Sync written rows to the disk and replace the target file with them, then close the writer
+   *
+   * @throws IOException if the rows cannot be synced or the target cannot be replaced
+   */
+  public void Commit() throws IOException {
+    flush();
+    m_out_.getFD().sync();
+    super.close();
+    try {
+      Files.move(m_temp_, m_target_, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(m_temp_, m_target_, StandardCopyOption.REPLACE_EXISTING);
+    }
+    m_committed_ = true;
+    SyncDirectory(m_target_.toAbsolutePath().getParent());
+  }
+
+  /**
+   * Close the writer, discarding written rows if not committed
+   *
+   * @throws IOException if the temporary file cannot be closed or removed
+   */
+  @Override
+  public void close() throws IOException {
+    if (!m_committed_) {
+      try {
+        super.close();
+      } finally {
+        Files.deleteIfExists(m_temp_);
+      }
+    }
+  }
+
+  /**
+   * Sync a directory so a rename in it survives a crash. Not every platform can open a directory, it is skipped
+   * where it cannot.
+   *
+   * @param dir the directory
+   */
+  private static void SyncDirectory(Path dir) {
+    try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // The rename is still atomic, only its durability is left to the file system
+    }
+  }
+}
 
 /**
  * Convert a string into a valid csv element token
@@ -10,20 +215,49 @@ public class CsvWriter {
  * @throws NullPointerException if src is null
  */
 public static String GenerateToken(String src) throws NullPointerException {
+  StringBuilder stringBuilder = new StringBuilder();
+  try {
+    WriteToken(stringBuilder, src);
+  } catch (IOException e) {
+    // StringBuilder never throws
+    throw new UncheckedIOException(e);
+  }
+  return stringBuilder.toString();
+}
+
+/**
+ * Write a string as a valid csv element token
+ *
+ * @param out target
+ * @param src string to be converted
+ * @throws IOException          if the target fails
+ * @throws NullPointerException if src is null
+ */
+public static void WriteToken(Appendable out, String src) throws IOException, NullPointerException {
   if (src == null) {
     throw new NullPointerException("String cannot be null");
   }
-  boolean       needEscape    = src.contains("\"") || src.contains(",") || src.contains("\n") || src.contains("\r");
-  StringBuilder stringBuilder = new StringBuilder().append(needEscape ? '"' : "");
-  for (int i = 0; ! src.isEmpty() && i < src.length(); i++) {
-    char c = src.charAt(i);
-    if (needEscape && c == '"') {
-      stringBuilder.append("\"");
+  int i = 0;
+  int n = src.length();
+  while (i < n && ! NeedEscape(src.charAt(i))) {
+    i++;
+  }
+  // Most of elements need no escape
+  if (i == n) {
+    out.append(src);
+    return;
+  }
+  out.append('"');
+  for (int from = 0, quote; from < n; from = quote + 1) {
+    quote = src.indexOf('"', from);
+    if (quote < 0) {
+      out.append(src, from, n);
+      break;
     }
-    stringBuilder.append(c);
+    out.append(src, from, quote + 1)
+       .append('"');
   }
-  return stringBuilder.append(needEscape ? '"' : "")
-                      .toString();
+  out.append('"');
 }
 
 /**
@@ -34,15 +268,85 @@ public static String GenerateToken(String src) throws NullPointerException {
  */
 public static String GenerateContent(Table table) {
   StringBuilder stringBuilder = new StringBuilder();
-  for (var l : table.GetTable()) {
-    for (int i = 0; i < l.length; i++) {
-      stringBuilder.append(GenerateToken(l[i]));
-      stringBuilder.append(i < l.length - 1 ? "," : "");
-    }
-    stringBuilder.append('\n');
+  try {
+    WriteContent(stringBuilder, table);
+  } catch (IOException e) {
+    // StringBuilder never throws
+    throw new UncheckedIOException(e);
   }
   return stringBuilder.toString();
 }
 
+/**
+ * Write whole csv object as text
+ *
+ * @param out   target
+ * @param table csv to be ported
+ * @throws IOException if the target fails
+ */
+public static void WriteContent(Appendable out, Table table) throws IOException {
+  int cols = table.GetCols();
+  for (Table.Cursor cursor = table.GetCursor(); cursor.Next(); ) {
+    for (int i = 0; i < cols; i++) {
+      WriteToken(out, cursor.Get(i));
+      if (i < cols - 1) {
+        out.append(',');
+      }
+    }
+    out.append('\n');
+  }
+}
+
+/**
+ * Open a row writer on a stream, rows are encoded in UTF-8
+ *
+ * @param out target stream, closed along with the row writer
+ * @return row writer
+ */
+public static RowWriter OpenRowWriter(OutputStream out) {
+  return new RowWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+}
+
+/**
+ * Open a row writer on a file, rows are encoded in UTF-8 and the file is truncated
+ *
+ * @param path target file
+ * @return row writer
+ * @throws IOException if the file is not writable
+ */
+public static RowWriter OpenRowWriter(Path path) throws IOException {
+  return OpenRowWriter(Files.newOutputStream(path));
+}
+
+/**
+ * Open a row writer which atomically replaces a file on commit, rows are encoded in UTF-8
+ *
+ * @param path target file
+ * @return row writer, {@link AtomicRowWriter#Commit()} must be called to replace the target
+ * @throws IOException if the temporary file cannot be created
+ */
+public static AtomicRowWriter OpenAtomicRowWriter(Path path) throws IOException {
+  Path dir  = path.toAbsolutePath().getParent();
+  Path temp = Files.createTempFile(dir, path.getFileName().toString() + ".", ".tmp");
+  try {
+    // Temporary files are private, keep permissions of the file being replaced
+    if (Files.exists(path)) {
+      try {
+        Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(path));
+      } catch (UnsupportedOperationException e) {
+        // Not a posix file system
+      }
+    }
+    return new AtomicRowWriter(path, temp, new FileOutputStream(temp.toFile()));
+  } catch (IOException e) {
+    Files.deleteIfExists(temp);
+    throw e;
+  }
+}
+
+private static boolean NeedEscape(char c) {
+  return c == '"' || c == ',' || c == '\n' || c == '\r';
+}
+
 }
 
@@ -22,4 +22,25 @@ public static class IllegalSyntaxException
   }
 }
 
+public static class IllegalFieldException
+    extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Constructs a new IllegalFieldException with {@code null} as its detail message.
+   */
+  public IllegalFieldException() {
+    super();
+  }
+
+  /**
+   * Constructs a new IllegalFieldException with the specified detail message.
+   *
+   * @param e the detail message
+   */
+  public IllegalFieldException(String e) {
+    super(e);
+  }
+}
+
 }
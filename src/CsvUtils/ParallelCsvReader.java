@@ -0,0 +1,206 @@
+package CsvUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Load large UTF-8 encoded csv files on several cores.
+ * <p>
+ * The file is memory mapped and split into chunks at returns outside quotations, chunks are parsed on a fork-join
+ * pool and merged in their original order. The result is the same as {@link CsvReader#ConstructTableFromCSV(String)}
+ * on the contents of the file.
+ */
+public class ParallelCsvReader {
+public static final long SEQUENTIAL_THRESHOLD = 1 << 20;    // files smaller than this are parsed sequentially
+public static final int  MIN_CHUNK_SIZE       = 1 << 18;    // bytes
+public static final int  CHUNKS_PER_WORKER    = 4;          // more chunks than workers, for load balancing
+
+/**
+ * Load csv file into Table object, using all available cores
+ *
+ * @param path csv file
+ * @return a Table object to be manipulated
+ * @throws IOException if the file is not readable or larger than 2GB
+ */
+public static Table ConstructTableFromFile(Path path) throws IOException {
+  return ConstructTableFromFile(path, ForkJoinPool.getCommonPoolParallelism());
+}
+
+/**
+ * Load csv file into Table object
+ *
+ * @param path        csv file
+ * @param parallelism how many workers to be used, parsed sequentially if less than 2
+ * @return a Table object to be manipulated
+ * @throws IOException if the file is not readable or larger than 2GB
+ */
+public static Table ConstructTableFromFile(Path path, int parallelism) throws IOException {
+  return ConstructTableFromFile(path, parallelism, SEQUENTIAL_THRESHOLD);
+}
+
+/**
+ * Load csv file into Table object
+ *
+ * @param path        csv file
+ * @param parallelism how many workers to be used, parsed sequentially if less than 2
+ * @param threshold   files smaller than this many bytes are parsed sequentially
+ * @return a Table object to be manipulated
+ * @throws IOException if the file is not readable or larger than 2GB
+ */
+public static Table ConstructTableFromFile(Path path, int parallelism, long threshold) throws IOException {
+  long size = Files.size(path);
+  if (parallelism < 2 || size < threshold) {
+    return CsvReader.ConstructTableFromCSV(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+  }
+  if (size > Integer.MAX_VALUE) {
+    throw new IOException(String.format("File %s is too large to be mapped, %d bytes", path, size));
+  }
+
+  MappedByteBuffer src;
+  try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+    src = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+  }
+
+  int                  chunks = (int) Math.max(1, Math.min((long) parallelism * CHUNKS_PER_WORKER, size / MIN_CHUNK_SIZE));
+  int[]                bounds = Split(src, chunks);
+  List<List<String[]>> rows   = ParseChunks(src, bounds, parallelism);
+
+  Table ret = new Table();
+  for (List<String[]> chunk : rows) {
+    for (String[] line : chunk) {
+      int row = ret.GetRows();
+      ret.InsertLine();
+      for (String val : line) {
+        ret.InsertElement(row, val, true);
+      }
+    }
+  }
+  return ret;
+}
+
+/**
+ * Find where to split the source, just after a return which lies outside quotations.
+ * <p>
+ * Follows the same quotation rules as {@link CsvTokenizer}: a quotation only starts a quoted element at the
+ * beginning of an element, and the element contents end at the next quotation.
+ *
+ * @param src    source bytes
+ * @param chunks how many chunks are wanted
+ * @return bounds of chunks, chunk i lies in [bounds[i], bounds[i + 1])
+ */
+static int[] Split(ByteBuffer src, int chunks) {
+  int     size         = src.limit();
+  int     step         = Math.max(1, size / chunks);
+  int[]   bounds       = new int[chunks + 1];
+  int     n            = 1;
+  int     next         = step;
+  boolean elementStart = true;
+
+  for (int i = 0; i < size && n < chunks; i++) {
+    byte b = src.get(i);
+    if (elementStart && b == '"') {
+      // Skip quoted contents, returns in between do not end a line
+      do {
+        i++;
+      } while (i < size && src.get(i) != '"');
+      elementStart = false;
+      continue;
+    }
+    switch (b) {
+      case '\n': case '\r':
+        if (i + 1 >= next && i + 1 < size) {
+          bounds[n++] = i + 1;
+          next        = i + 1 + step;
+        }
+        elementStart = true;
+        break;
+      case ',':
+        elementStart = true;
+        break;
+      default:
+        elementStart = false;
+        break;
+    }
+  }
+  bounds[n++] = size;
+  return Arrays.copyOf(bounds, n);
+}
+
+/**
+ * Parse chunks on a pool of workers
+ *
+ * @param src         source bytes
+ * @param bounds      bounds of chunks, see {@link #Split(ByteBuffer, int)}
+ * @param parallelism how many workers to be used
+ * @return rows of every chunk, in order
+ */
+private static List<List<String[]>> ParseChunks(ByteBuffer src, int[] bounds, int parallelism) {
+  // Every chunk task sets its own slot, the size of the list never changes
+  List<List<String[]>> ret  = new ArrayList<>(Collections.nCopies(bounds.length - 1, null));
+  ForkJoinPool         pool = new ForkJoinPool(parallelism);
+  try {
+    pool.invoke(new ChunkTask(src, bounds, ret, 0, ret.size()));
+  } finally {
+    pool.shutdown();
+  }
+  return ret;
+}
+
+/**
+ * Parse chunks [from, to), splitting the range in half until a single chunk is left
+ */
+private static class ChunkTask
+    extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  private final transient ByteBuffer           m_src_;
+  private final           int[]                m_bounds_;
+  private final transient List<List<String[]>> m_rows_;
+  private final           int                  m_from_;
+  private final           int                  m_to_;
+
+  ChunkTask(ByteBuffer src, int[] bounds, List<List<String[]>> rows, int from, int to) {
+    m_src_    = src;
+    m_bounds_ = bounds;
+    m_rows_   = rows;
+    m_from_   = from;
+    m_to_     = to;
+  }
+
+  @Override
+  protected void compute() {
+    if (m_to_ - m_from_ > 1) {
+      int mid = (m_from_ + m_to_) >>> 1;
+      invokeAll(new ChunkTask(m_src_, m_bounds_, m_rows_, m_from_, mid),
+                new ChunkTask(m_src_, m_bounds_, m_rows_, mid, m_to_));
+      return;
+    }
+    int begin = m_bounds_[m_from_];
+    int end   = m_bounds_[m_from_ + 1];
+
+    // Chunks are split just after returns, the encoding of which never lies inside a multibyte character
+    CharBuffer chars = StandardCharsets.UTF_8.decode(m_src_.slice(begin, end - begin));
+
+    List<String[]> rows = new ArrayList<>();
+    CsvReader.RowIterator it = new CsvReader.RowIterator(new CsvTokenizer(chars), null, m_from_ > 0);
+    while (it.hasNext()) {
+      rows.add(it.next());
+    }
+    m_rows_.set(m_from_, rows);
+  }
+}
+
+}
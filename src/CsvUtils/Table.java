@@ -1,20 +1,160 @@
 package CsvUtils;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
 
 public class Table {
-protected final LinkedList<ArrayList<String>> m_table_    = new LinkedList<>(); // table
-protected       ArrayList<String>             m_tableTitle_;  // title
-protected       boolean                       m_hasTitle_ = false;              // weather the table has title
-protected       int                           m_rows_     = 0;                  // rows
-protected       int                           m_columns_  = 0;                  // cols
-private final   List<String[]>                table;
+
+/**
+ * How cells are laid out in memory
+ */
+public enum Layout {
+  /**
+   * Cells of a row are stored together, suits row by row processing
+   */
+  ROW,
+  /**
+   * Cells of a column are stored together, suits scanning whole columns
+   */
+  COLUMN
+}
+
+protected final TableStorage      m_table_;                     // table
+protected final Layout            m_layout_;                    // layout of the table
+protected       ArrayList<String> m_tableTitle_;                // title
+protected       boolean           m_hasTitle_ = false;          // weather the table has title
+protected       int               m_rows_     = 0;              // rows
+protected       int               m_columns_  = 0;              // cols
+private final   List<String[]>    table;
+private final   List<ColumnIndex> m_indexes_  = new ArrayList<>();  // secondary indexes
 
 public Table() {
-  table = new ArrayList<>();
+  this(Layout.ROW);
+}
+
+/**
+ * Construct an empty table
+ *
+ * @param layout how cells are laid out in memory
+ */
+public Table(Layout layout) {
+  table     = new ArrayList<>();
+  m_layout_ = layout;
+  m_table_  = TableStorage.Create(layout);
+}
+
+/**
+ * Get how cells of the table are laid out in memory
+ *
+ * @return layout
+ */
+public Layout GetLayout() {
+  return m_layout_;
+}
+
+/**
+ * Store `col' column dictionary encoded: every distinct value of the column is kept once, and rows refer to it
+ * instead of holding their own copies. Values are decoded when read, so reading the table is not affected.
+ * A column may be encoded before it is filled, then values are encoded as they are inserted.
+ *
+ * @param col column to be encoded
+ * @return self, for chain-call
+ * @throws IndexOutOfBoundsException if the col is negative
+ */
+public Table EncodeColumn(int col) throws IndexOutOfBoundsException {
+  if (col < 0) {
+    throw new IndexOutOfBoundsException(String.format("Column cannot be negative, the argument provided %d", col));
+  }
+  m_table_.Encode(col);
+  return this;
+}
+
+/**
+ * Check if `col' column is stored dictionary encoded
+ *
+ * @param col column of the table
+ * @return true if the column is encoded
+ */
+public boolean IsColumnEncoded(int col) {
+  return col >= 0 && m_table_.IsEncoded(col);
+}
+
+/**
+ * Maintain a hash index on `col' column, so {@link #FindRows(int, String)} on the column takes O(1) expected time.
+ * The index is kept up to date as the table changes, inserting or removing a line in the middle of the table
+ * makes the next lookup rebuild it.
+ *
+ * @param col column to be indexed
+ * @return self, for chain-call
+ * @throws IndexOutOfBoundsException if the col is negative
+ */
+public Table IndexColumn(int col) throws IndexOutOfBoundsException {
+  if (col < 0) {
+    throw new IndexOutOfBoundsException(String.format("Column cannot be negative, the argument provided %d", col));
+  }
+  if (! IsColumnIndexed(col)) {
+    m_indexes_.add(new ColumnIndex(col));
+  }
+  return this;
+}
+
+/**
+ * Stop maintaining the index on `col' column
+ *
+ * @param col indexed column
+ * @return self, for chain-call
+ */
+public Table DropIndex(int col) {
+  m_indexes_.removeIf(index -> index.GetCol() == col);
+  return this;
+}
+
+/**
+ * Check if `col' column is indexed
+ *
+ * @param col column of the table
+ * @return true if the column is indexed
+ */
+public boolean IsColumnIndexed(int col) {
+  return GetIndex(col) != null;
+}
+
+/**
+ * Find rows whose element on `col' column equals to the key, rows shorter than the column hold empty string.
+ * Takes O(1) expected time if the column is indexed, otherwise scans the column.
+ *
+ * @param col column to be searched
+ * @param key value to be found
+ * @return rows holding the key, in ascending order
+ * @throws IndexOutOfBoundsException if the col is out of bound
+ */
+public int[] FindRows(int col, String key) throws IndexOutOfBoundsException {
+  if (col < 0 || col >= m_columns_) {
+    throw new IndexOutOfBoundsException(
+        String.format("Totally have %d columns, the argument provided %d", m_columns_, col));
+  }
+  ColumnIndex index = GetIndex(col);
+  if (index != null) {
+    if (! index.IsValid()) {
+      index.Build(m_table_);
+    }
+    return index.Find(key, m_rows_);
+  }
+  int[] ret  = new int[8];
+  int   size = 0;
+  for (int i = 0; i < m_rows_; i++) {
+    if (Objects.equals(GetPaddedElement(i, col), key)) {
+      if (size == ret.length) {
+        ret = Arrays.copyOf(ret, size * 2);
+      }
+      ret[size++] = i;
+    }
+  }
+  return Arrays.copyOf(ret, size);
 }
 
 /**
@@ -44,8 +184,8 @@ public String[][] GetTable() {
   String[][] ret = new String[m_rows_][m_columns_];
   for (int i = 0; i < m_rows_; i++) {
     for (int j = 0; j < m_columns_; j++) {
-      if (i < m_table_.size() && j < m_table_.get(i).size()) {
-        ret[i][j] = m_table_.get(i).get(j);
+      if (i < m_table_.Rows() && j < m_table_.RowLength(i)) {
+        ret[i][j] = m_table_.Get(i, j);
       } else {
         ret[i][j] = ""; // or any default value
       }
@@ -85,7 +225,64 @@ public String GetElement(int row, int col) throws IndexOutOfBoundsException {
     throw new IndexOutOfBoundsException(
         String.format("Totally have %d columns, the argument provided %d", m_columns_, col));
   }
-  return m_table_.get(row).get(col);
+  return m_table_.Get(row, col);
+}
+
+/**
+ * Get elements that lie on `col' column, rows shorter than the column are padded with empty string
+ *
+ * @param col column of the elements
+ * @return elements of the column, in the order of rows
+ * @throws IndexOutOfBoundsException if the col is out of bound
+ */
+public String[] GetColumn(int col) throws IndexOutOfBoundsException {
+  if (col < 0 || col >= m_columns_) {
+    throw new IndexOutOfBoundsException(
+        String.format("Totally have %d columns, the argument provided %d", m_columns_, col));
+  }
+  String[] ret = new String[m_rows_];
+  m_table_.ReadColumn(col, ret);
+  return ret;
+}
+
+/**
+ * Get a read-only view of `row' row, padded with empty string to the columns of the table.
+ * The view is not a copy, it reflects later changes of the table.
+ *
+ * @param row row of the view
+ * @return view of the row
+ * @throws IndexOutOfBoundsException if the row is out of bound
+ */
+public List<String> GetRowView(int row) throws IndexOutOfBoundsException {
+  if (row < 0 || row >= m_rows_) {
+    throw new IndexOutOfBoundsException(String.format("Totally have %d rows, the argument provided %d", m_rows_, row));
+  }
+  return new RowView(row);
+}
+
+/**
+ * Get a read-only view of `col' column, padded with empty string where a row is shorter than the column.
+ * The view is not a copy, it reflects later changes of the table.
+ *
+ * @param col column of the view
+ * @return view of the column
+ * @throws IndexOutOfBoundsException if the col is out of bound
+ */
+public List<String> GetColumnView(int col) throws IndexOutOfBoundsException {
+  if (col < 0 || col >= m_columns_) {
+    throw new IndexOutOfBoundsException(
+        String.format("Totally have %d columns, the argument provided %d", m_columns_, col));
+  }
+  return new ColumnView(col);
+}
+
+/**
+ * Get a forward cursor, placed before the first row
+ *
+ * @return cursor over rows of the table
+ */
+public Cursor GetCursor() {
+  return new Cursor();
 }
 
 /**
@@ -105,7 +302,7 @@ public Table SetElement(int row, int col, String val) throws IndexOutOfBoundsExc
     throw new IndexOutOfBoundsException(
         String.format("Totally have %d columns, the argument provided %d", m_columns_, col));
   }
-  m_table_.get(row).set(col, val);
+  StoreSet(row, col, val);
   return this;
 }
 
@@ -130,8 +327,7 @@ public Table SetElement(int row, int col, String val, boolean expand) throws Ind
     m_columns_ = col + 1;
     Sync();
   }
-  m_table_.get(row)
-          .set(col, val);
+  StoreSet(row, col, val);
   return this;
 }
 
@@ -147,10 +343,10 @@ public Table InsertElement(int row, String val) throws IndexOutOfBoundsException
   while (row >= m_rows_) {
     InsertLine();
   }
-  if (m_table_.get(row).size() + 1 > m_columns_) {
+  if (m_table_.RowLength(row) + 1 > m_columns_) {
     throw new IndexOutOfBoundsException("Cannot add more Item into the table");
   }
-  m_table_.get(row).add(val);
+  StoreAppend(row, val);
   return this;
 }
 /**
@@ -169,13 +365,10 @@ public Table InsertElement(int row, String val, boolean expand) throws IndexOutO
   while (row > m_rows_) {
     InsertLine();
   }
-  if (m_table_.get(row)
-              .size() + 1 >= m_columns_) {
-    m_columns_ = m_table_.get(row)
-                         .size() + 1;
+  if (m_table_.RowLength(row) + 1 >= m_columns_) {
+    m_columns_ = m_table_.RowLength(row) + 1;
   }
-  m_table_.get(row)
-          .add(val);
+  StoreAppend(row, val);
   return this;
 }
 
@@ -185,7 +378,7 @@ public Table InsertElement(int row, String val, boolean expand) throws IndexOutO
  * @return self, for chain-call
  */
 public Table InsertLine() {
-  m_table_.add(new ArrayList<>(m_columns_));
+  StoreInsertRow(m_table_.Rows(), List.of());
   m_rows_++;
   return this;
 }
@@ -207,7 +400,7 @@ public Table InsertLine(List<String> line) throws IllegalArgumentException {
   } else if (line.size() != m_columns_) {
     throw new IllegalArgumentException(String.format("Inserted line is not length of %s", m_columns_));
   }
-  m_table_.add(new ArrayList<>(line));
+  StoreInsertRow(m_table_.Rows(), line);
   m_rows_++;
   return this;
 }
@@ -220,7 +413,7 @@ public Table InsertLine(List<String> line) throws IllegalArgumentException {
  * @return self, for chain-call
  */
 public Table InsertLine(int index) {
-  m_table_.add(index, new ArrayList<>(m_columns_));
+  StoreInsertRow(index, List.of());
   m_rows_++;
   return this;
 }
@@ -237,7 +430,7 @@ public Table InsertLine(int index, List<String> line) throws IllegalArgumentExce
   if (line.size() != m_columns_) {
     throw new IllegalArgumentException(String.format("Inserted line is not length of %s", m_columns_));
   }
-  m_table_.add(index, new ArrayList<>(line));
+  StoreInsertRow(index, line);
   m_rows_++;
   return this;
 }
@@ -249,10 +442,10 @@ public Table InsertLine(int index, List<String> line) throws IllegalArgumentExce
  * @throws IndexOutOfBoundsException if the table is empty
  */
 public Table RemoveLine() throws IndexOutOfBoundsException {
-  if (m_rows_ <= 0 || m_table_.size() <= 0) {
+  if (m_rows_ <= 0 || m_table_.Rows() <= 0) {
     throw new IndexOutOfBoundsException("The Table is empty");
   }
-  m_table_.removeLast();
+  StoreRemoveRow(m_table_.Rows() - 1);
   m_rows_--;
   return this;
 }
@@ -265,12 +458,12 @@ public Table RemoveLine() throws IndexOutOfBoundsException {
  * @throws IndexOutOfBoundsException if the table is empty or index is larger than total rows
  */
 public Table RemoveLine(int index) throws IndexOutOfBoundsException {
-  if (m_rows_ <= 0 || m_table_.size() <= 0 || index >= m_rows_) {
+  if (m_rows_ <= 0 || m_table_.Rows() <= 0 || index >= m_rows_) {
     throw new IndexOutOfBoundsException(
         String.format("The Table is empty or index %d is out of bound, the total number of rows is %d", index,
                       m_rows_));
   }
-  m_table_.remove(index);
+  StoreRemoveRow(index);
   m_rows_--;
   return this;
 }
@@ -309,15 +502,13 @@ public Table SetTitle(String... title) {
  */
 public Table Sync() {
 
-  while (m_table_.size() < m_rows_) {
-    m_table_.add(new ArrayList<>(m_columns_));
+  while (m_table_.Rows() < m_rows_) {
+    StoreInsertRow(m_table_.Rows(), List.of());
   }
 
   for (int i = 0; i < m_rows_; i++) {
-    while (m_table_.get(i)
-                   .size() < m_columns_) {
-      m_table_.get(i)
-              .add("");
+    while (m_table_.RowLength(i) < m_columns_) {
+      StoreAppend(i, "");
     }
   }
   return this;
@@ -360,6 +551,180 @@ public Table ReRows(int rows) {
 
 }
 
+private ColumnIndex GetIndex(int col) {
+  for (ColumnIndex index : m_indexes_) {
+    if (index.GetCol() == col) {
+      return index;
+    }
+  }
+  return null;
+}
+
+/**
+ * Set an element of the storage, and the index on its column
+ */
+private void StoreSet(int row, int col, String val) {
+  ColumnIndex index = GetIndex(col);
+  String      old   = index != null && index.IsValid() ? m_table_.Get(row, col) : null;
+  m_table_.Set(row, col, val);
+  if (index != null && index.IsValid()) {
+    index.Remove(old, row);
+    index.Add(val, row);
+  }
+}
+
+/**
+ * Append an element to a row of the storage, and the index on its column
+ */
+private void StoreAppend(int row, String val) {
+  ColumnIndex index = GetIndex(m_table_.RowLength(row));
+  m_table_.Append(row, val);
+  if (index != null && index.IsValid()) {
+    index.Remove("", row);
+    index.Add(val, row);
+  }
+}
+
+/**
+ * Insert a row into the storage, indexes are updated if the row is appended, otherwise invalidated
+ */
+private void StoreInsertRow(int index, List<String> line) {
+  m_table_.InsertRow(index, line);
+  boolean append = index == m_table_.Rows() - 1;
+  for (ColumnIndex columnIndex : m_indexes_) {
+    if (! append) {
+      columnIndex.Invalidate();
+    } else if (columnIndex.IsValid()) {
+      columnIndex.Add(columnIndex.GetCol() < line.size() ? line.get(columnIndex.GetCol()) : "", index);
+    }
+  }
+}
+
+/**
+ * Remove a row from the storage, indexes are updated if the row is the last one, otherwise invalidated
+ */
+private void StoreRemoveRow(int index) {
+  boolean  last = index == m_table_.Rows() - 1;
+  String[] olds = new String[m_indexes_.size()];
+  for (int i = 0; last && i < olds.length; i++) {
+    int col = m_indexes_.get(i).GetCol();
+    olds[i] = col < m_table_.RowLength(index) ? m_table_.Get(index, col) : "";
+  }
+  m_table_.RemoveRow(index);
+  for (int i = 0; i < olds.length; i++) {
+    ColumnIndex columnIndex = m_indexes_.get(i);
+    if (! last) {
+      columnIndex.Invalidate();
+    } else if (columnIndex.IsValid()) {
+      columnIndex.Remove(olds[i], index);
+    }
+  }
+}
+
+/**
+ * Get element for views, rows shorter than the table are padded with empty string
+ */
+private String GetPaddedElement(int row, int col) {
+  return row < m_table_.Rows() && col < m_table_.RowLength(row) ? m_table_.Get(row, col) : "";
+}
+
+/**
+ * Read-only view of a row
+ */
+private class RowView
+    extends AbstractList<String>
+    implements RandomAccess {
+  private final int m_row_;
+
+  RowView(int row) {
+    m_row_ = row;
+  }
+
+  @Override
+  public String get(int col) {
+    return GetPaddedElement(m_row_, Objects.checkIndex(col, m_columns_));
+  }
+
+  @Override
+  public int size() {
+    return m_columns_;
+  }
 }
 
+/**
+ * Read-only view of a column
+ */
+private class ColumnView
+    extends AbstractList<String>
+    implements RandomAccess {
+  private final int m_col_;
+
+  ColumnView(int col) {
+    m_col_ = col;
+  }
+
+  @Override
+  public String get(int row) {
+    return GetPaddedElement(Objects.checkIndex(row, m_rows_), m_col_);
+  }
 
+  @Override
+  public int size() {
+    return m_rows_;
+  }
+}
+
+/**
+ * Forward cursor over rows of the table, reads elements in place without copying
+ */
+public class Cursor {
+  private int m_row_ = - 1;
+
+  private Cursor() {
+  }
+
+  /**
+   * Move to next row
+   *
+   * @return false if there is no more row
+   */
+  public boolean Next() {
+    if (m_row_ < m_rows_) {
+      m_row_++;
+    }
+    return m_row_ < m_rows_;
+  }
+
+  /**
+   * Get index of current row
+   *
+   * @return current row
+   */
+  public int GetRow() {
+    return m_row_;
+  }
+
+  /**
+   * Get element of current row, padded with empty string if the row is shorter than the table
+   *
+   * @param col column of the element
+   * @return element
+   * @throws IndexOutOfBoundsException if the cursor is not on a row or col is out of bound
+   */
+  public String Get(int col) throws IndexOutOfBoundsException {
+    Objects.checkIndex(m_row_, m_rows_);
+    return GetPaddedElement(m_row_, Objects.checkIndex(col, m_columns_));
+  }
+
+  /**
+   * Get a read-only view of current row
+   *
+   * @return view of the row
+   * @throws IndexOutOfBoundsException if the cursor is not on a row
+   */
+  public List<String> GetLine() throws IndexOutOfBoundsException {
+    return GetRowView(m_row_);
+  }
+}
+
+}
@@ -0,0 +1,411 @@
+package CsvUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Physical storage of table cells, rows may be of different lengths.
+ * <p>
+ * All accesses are O(1) except inserting or removing a row in the middle.
+ */
+abstract class TableStorage {
+private final BitSet m_encoded_ = new BitSet();  // columns stored dictionary encoded
+
+/**
+ * Create a storage of the given layout
+ *
+ * @param layout layout of the storage
+ * @return an empty storage
+ */
+static TableStorage Create(Table.Layout layout) {
+  return layout == Table.Layout.COLUMN ? new ColumnStorage() : new RowStorage();
+}
+
+/**
+ * Get physical rows of the storage
+ *
+ * @return rows
+ */
+abstract int Rows();
+
+/**
+ * Get count of elements in `row' row
+ *
+ * @param row row index
+ * @return elements in the row
+ * @throws IndexOutOfBoundsException if the row is out of bound
+ */
+abstract int RowLength(int row) throws IndexOutOfBoundsException;
+
+/**
+ * Get element that lies on `row' row and `col' column
+ *
+ * @param row row index
+ * @param col column index
+ * @return element
+ * @throws IndexOutOfBoundsException if the row or col is out of bound
+ */
+abstract String Get(int row, int col) throws IndexOutOfBoundsException;
+
+/**
+ * Set element that lies on `row' row and `col' column
+ *
+ * @param row row index
+ * @param col column index
+ * @param val new value
+ * @throws IndexOutOfBoundsException if the row or col is out of bound
+ */
+abstract void Set(int row, int col, String val) throws IndexOutOfBoundsException;
+
+/**
+ * Append an element to the end of `row' row
+ *
+ * @param row row index
+ * @param val new value
+ * @throws IndexOutOfBoundsException if the row is out of bound
+ */
+abstract void Append(int row, String val) throws IndexOutOfBoundsException;
+
+/**
+ * Insert a row before `index'
+ *
+ * @param index where to insert, equals to rows to append at the end
+ * @param line  contents of the row
+ * @throws IndexOutOfBoundsException if the index is out of bound
+ */
+abstract void InsertRow(int index, List<String> line) throws IndexOutOfBoundsException;
+
+/**
+ * Remove `index' row
+ *
+ * @param index row index
+ * @throws IndexOutOfBoundsException if the index is out of bound
+ */
+abstract void RemoveRow(int index) throws IndexOutOfBoundsException;
+
+/**
+ * Copy `col' column of the first dst.length rows, missing elements are filled with empty string
+ *
+ * @param col column index
+ * @param dst where to put the column
+ */
+abstract void ReadColumn(int col, String[] dst);
+
+/**
+ * Store `col' column dictionary encoded from now on, the column need not exist yet
+ *
+ * @param col column index
+ */
+final void Encode(int col) {
+  if (! m_encoded_.get(col)) {
+    m_encoded_.set(col);
+    EncodeExisting(col);
+  }
+}
+
+/**
+ * Check if `col' column is stored dictionary encoded
+ *
+ * @param col column index
+ * @return true if the column is encoded
+ */
+final boolean IsEncoded(int col) {
+  return m_encoded_.get(col);
+}
+
+/**
+ * Encode elements already stored in `col' column, the column is just marked as encoded
+ *
+ * @param col column index
+ */
+abstract void EncodeExisting(int col);
+
+/**
+ * Rows are stored one after another
+ */
+static final class RowStorage
+    extends TableStorage {
+  private final ArrayList<ArrayList<String>> m_rows_         = new ArrayList<>();
+  private final ArrayList<ColumnDictionary>  m_dictionaries_ = new ArrayList<>();  // null if not encoded
+
+  @Override
+  int Rows() {
+    return m_rows_.size();
+  }
+
+  @Override
+  int RowLength(int row) throws IndexOutOfBoundsException {
+    return m_rows_.get(row)
+                  .size();
+  }
+
+  @Override
+  String Get(int row, int col) throws IndexOutOfBoundsException {
+    return m_rows_.get(row)
+                  .get(col);
+  }
+
+  @Override
+  void Set(int row, int col, String val) throws IndexOutOfBoundsException {
+    m_rows_.get(row)
+           .set(col, Intern(col, val));
+  }
+
+  @Override
+  void Append(int row, String val) throws IndexOutOfBoundsException {
+    ArrayList<String> line = m_rows_.get(row);
+    line.add(Intern(line.size(), val));
+  }
+
+  @Override
+  void InsertRow(int index, List<String> line) throws IndexOutOfBoundsException {
+    ArrayList<String> row = new ArrayList<>(line);
+    for (int i = 0; i < row.size() && i < m_dictionaries_.size(); i++) {
+      row.set(i, Intern(i, row.get(i)));
+    }
+    m_rows_.add(index, row);
+  }
+
+  @Override
+  void RemoveRow(int index) throws IndexOutOfBoundsException {
+    m_rows_.remove(index);
+  }
+
+  @Override
+  void ReadColumn(int col, String[] dst) {
+    for (int i = 0; i < dst.length; i++) {
+      ArrayList<String> row = i < m_rows_.size() ? m_rows_.get(i) : null;
+      dst[i] = row != null && col < row.size() ? row.get(col) : "";
+    }
+  }
+
+  /**
+   * Rows keep their own lists, so encoded elements share the instance kept by the dictionary instead
+   */
+  @Override
+  void EncodeExisting(int col) {
+    while (m_dictionaries_.size() <= col) {
+      m_dictionaries_.add(null);
+    }
+    m_dictionaries_.set(col, new ColumnDictionary());
+    for (ArrayList<String> row : m_rows_) {
+      if (col < row.size()) {
+        row.set(col, Intern(col, row.get(col)));
+      }
+    }
+  }
+
+  private String Intern(int col, String val) {
+    ColumnDictionary dictionary = col < m_dictionaries_.size() ? m_dictionaries_.get(col) : null;
+    return dictionary == null ? val : dictionary.Intern(val);
+  }
+}
+
+/**
+ * Columns are stored one after another, so a column can be scanned without touching other columns.
+ * Elements missing from shorter rows are stored as null.
+ */
+static final class ColumnStorage
+    extends TableStorage {
+  private final ArrayList<Column> m_columns_ = new ArrayList<>();
+  private       int[]             m_lengths_ = new int[16];  // elements of every row
+  private       int               m_rows_    = 0;
+
+  @Override
+  int Rows() {
+    return m_rows_;
+  }
+
+  @Override
+  int RowLength(int row) throws IndexOutOfBoundsException {
+    CheckRow(row);
+    return m_lengths_[row];
+  }
+
+  @Override
+  String Get(int row, int col) throws IndexOutOfBoundsException {
+    CheckElement(row, col);
+    return m_columns_.get(col)
+                     .Get(row);
+  }
+
+  @Override
+  void Set(int row, int col, String val) throws IndexOutOfBoundsException {
+    CheckElement(row, col);
+    m_columns_.get(col)
+              .Set(row, val);
+  }
+
+  @Override
+  void Append(int row, String val) throws IndexOutOfBoundsException {
+    CheckRow(row);
+    int col = m_lengths_[row];
+    if (col == m_columns_.size()) {
+      m_columns_.add(NewColumn(col));
+    }
+    m_columns_.get(col)
+              .Set(row, val);
+    m_lengths_[row]++;
+  }
+
+  @Override
+  void InsertRow(int index, List<String> line) throws IndexOutOfBoundsException {
+    if (index < 0 || index > m_rows_) {
+      throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, m_rows_));
+    }
+    while (m_columns_.size() < line.size()) {
+      m_columns_.add(NewColumn(m_columns_.size()));
+    }
+    for (int i = 0; i < m_columns_.size(); i++) {
+      m_columns_.get(i)
+                .Insert(index, i < line.size() ? line.get(i) : null);
+    }
+    if (m_rows_ == m_lengths_.length) {
+      m_lengths_ = Arrays.copyOf(m_lengths_, m_lengths_.length * 2);
+    }
+    System.arraycopy(m_lengths_, index, m_lengths_, index + 1, m_rows_ - index);
+    m_lengths_[index] = line.size();
+    m_rows_++;
+  }
+
+  @Override
+  void RemoveRow(int index) throws IndexOutOfBoundsException {
+    CheckRow(index);
+    for (var column : m_columns_) {
+      column.Remove(index);
+    }
+    System.arraycopy(m_lengths_, index + 1, m_lengths_, index, m_rows_ - index - 1);
+    m_rows_--;
+  }
+
+  @Override
+  void ReadColumn(int col, String[] dst) {
+    Column column = col < m_columns_.size() ? m_columns_.get(col) : null;
+    for (int i = 0; i < dst.length; i++) {
+      dst[i] = i < m_rows_ && col < m_lengths_[i] ? column.Get(i) : "";
+    }
+  }
+
+  @Override
+  void EncodeExisting(int col) {
+    if (col < m_columns_.size()) {
+      m_columns_.set(col, new EncodedColumn(m_columns_.get(col), m_rows_));
+    }
+  }
+
+  private Column NewColumn(int col) {
+    return IsEncoded(col) ? new EncodedColumn(null, m_rows_) : new PlainColumn(m_rows_);
+  }
+
+  private void CheckRow(int row) throws IndexOutOfBoundsException {
+    if (row < 0 || row >= m_rows_) {
+      throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", row, m_rows_));
+    }
+  }
+
+  private void CheckElement(int row, int col) throws IndexOutOfBoundsException {
+    CheckRow(row);
+    if (col < 0 || col >= m_lengths_[row]) {
+      throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", col, m_lengths_[row]));
+    }
+  }
+
+  /**
+   * Elements of a column, one for every row, indexes are checked by the storage
+   */
+  private abstract static class Column {
+    abstract String Get(int row);
+
+    abstract void Set(int row, String val);
+
+    abstract void Insert(int row, String val);
+
+    abstract void Remove(int row);
+  }
+
+  /**
+   * Elements are stored as they are
+   */
+  private static final class PlainColumn
+      extends Column {
+    private final ArrayList<String> m_values_;
+
+    PlainColumn(int rows) {
+      m_values_ = new ArrayList<>(Arrays.asList(new String[rows]));
+    }
+
+    @Override
+    String Get(int row) {
+      return m_values_.get(row);
+    }
+
+    @Override
+    void Set(int row, String val) {
+      m_values_.set(row, val);
+    }
+
+    @Override
+    void Insert(int row, String val) {
+      m_values_.add(row, val);
+    }
+
+    @Override
+    void Remove(int row) {
+      m_values_.remove(row);
+    }
+  }
+
+  /**
+   * Elements are stored as codes of a dictionary, decoded when read
+   */
+  private static final class EncodedColumn
+      extends Column {
+    private final ColumnDictionary m_dictionary_ = new ColumnDictionary();
+    private       int[]            m_codes_;
+    private       int              m_size_;
+
+    /**
+     * Construct an encoded column
+     *
+     * @param src  elements to be encoded, null for a column of missing elements
+     * @param rows rows of the column
+     */
+    EncodedColumn(Column src, int rows) {
+      m_codes_ = new int[Math.max(rows, 16)];
+      m_size_  = rows;
+      for (int i = 0; i < rows; i++) {
+        m_codes_[i] = m_dictionary_.Encode(src == null ? null : src.Get(i));
+      }
+    }
+
+    @Override
+    String Get(int row) {
+      return m_dictionary_.Decode(m_codes_[row]);
+    }
+
+    @Override
+    void Set(int row, String val) {
+      m_codes_[row] = m_dictionary_.Encode(val);
+    }
+
+    @Override
+    void Insert(int row, String val) {
+      if (m_size_ == m_codes_.length) {
+        m_codes_ = Arrays.copyOf(m_codes_, m_codes_.length * 2);
+      }
+      System.arraycopy(m_codes_, row, m_codes_, row + 1, m_size_ - row);
+      m_codes_[row] = m_dictionary_.Encode(val);
+      m_size_++;
+    }
+
+    @Override
+    void Remove(int row) {
+      System.arraycopy(m_codes_, row + 1, m_codes_, row, m_size_ - row - 1);
+      m_size_--;
+    }
+  }
+}
+
+}
@@ -0,0 +1,199 @@
+package QuestionManagement;
+
+import xjtlu.cpt111.assignment.quiz.model.Difficulty;
+import xjtlu.cpt111.assignment.quiz.model.Option;
+import xjtlu.cpt111.assignment.quiz.model.Question;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Load question bank files on several cores.
+ * <p>
+ * Every XML file of a bank is streamed with StAX on its own worker, so no document tree is built and only the
+ * questions kept are held in memory. Questions are validated as soon as they are read. A file is laid out as:
+ * <pre>
+ *   &lt;questions&gt;
+ *     &lt;question difficulty="EASY"&gt;
+ *       &lt;topic&gt;...&lt;/topic&gt;
+ *       &lt;questionString&gt;...&lt;/questionString&gt;
+ *       &lt;option&gt;...&lt;/option&gt;
+ *       &lt;option answer="true"&gt;...&lt;/option&gt;
+ *     &lt;/question&gt;
+ *   &lt;/questions&gt;
+ * </pre>
+ * A damaged file keeps the questions read before the damage.
+ */
+public class QuestionBankReader {
+
+/**
+ * Decides if a question is kept
+ */
+public interface Validator {
+
+  /**
+   * Apply the validator, may be called from several workers at once
+   *
+   * @param question a question just read
+   * @return true if the question is kept
+   */
+  boolean Apply(Question question);
+}
+
+/**
+ * Read all XML files of a bank, using all available cores
+ *
+ * @param path      a bank directory, or a single bank file
+ * @param validator decides if a question is kept
+ * @return questions kept from every file, files in the order of their names
+ * @throws IOException if the bank is not readable
+ */
+public static List<Question[]> Read(Path path, Validator validator) throws IOException {
+  return Read(path, ForkJoinPool.getCommonPoolParallelism(), validator);
+}
+
+/**
+ * Read all XML files of a bank
+ *
+ * @param path        a bank directory, or a single bank file
+ * @param parallelism how many workers to be used, read sequentially if less than 2
+ * @param validator   decides if a question is kept
+ * @return questions kept from every file, files in the order of their names
+ * @throws IOException if the bank is not readable
+ */
+public static List<Question[]> Read(Path path, int parallelism, Validator validator) throws IOException {
+  List<Path> files;
+  if (Files.isDirectory(path)) {
+    try (Stream<Path> list = Files.list(path)) {
+      files = list.filter(Files::isRegularFile)
+                  .filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".xml"))
+                  .sorted()
+                  .collect(Collectors.toList());
+    }
+  } else if (Files.isRegularFile(path)) {
+    files = List.of(path);
+  } else {
+    throw new IOException("Question bank not found: " + path);
+  }
+
+  List<Question[]> ret = new ArrayList<>(files.size());
+  if (parallelism < 2 || files.size() < 2) {
+    for (Path file : files) {
+      ret.add(ReadFile(file, validator));
+    }
+    return ret;
+  }
+
+  ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, files.size()));
+  try {
+    List<ForkJoinTask<Question[]>> tasks = new ArrayList<>(files.size());
+    for (Path file : files) {
+      tasks.add(pool.submit(() -> ReadFile(file, validator)));
+    }
+    for (ForkJoinTask<Question[]> task : tasks) {
+      ret.add(task.join());
+    }
+  } finally {
+    pool.shutdown();
+  }
+  return ret;
+}
+
+/**
+ * Stream questions of a file
+ *
+ * @param file      bank file
+ * @param validator decides if a question is kept
+ * @return questions kept, in file order
+ */
+private static Question[] ReadFile(Path file, Validator validator) {
+  List<Question> questions = new ArrayList<>();
+  XMLInputFactory factory = XMLInputFactory.newFactory();
+  factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+  factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+  factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+  try (InputStream in = Files.newInputStream(file)) {
+    XMLStreamReader reader = factory.createXMLStreamReader(in);
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT && "question".equals(reader.getLocalName())) {
+          Question q = ReadQuestion(reader);
+          if (q != null && validator.Apply(q)) {
+            questions.add(q);
+          }
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  } catch (IOException | XMLStreamException e) {
+    Logger.getLogger("global").warning("Question file is damaged: " + file + ": " + e.getMessage()
+                                       + ". Keeping " + questions.size() + " questions read before.");
+  }
+  return questions.toArray(new Question[0]);
+}
+
+/**
+ * Read a question, the reader is on its start element and left on its end element
+ *
+ * @param reader the reader
+ * @return the question, or null if it has no valid difficulty
+ * @throws XMLStreamException if the file is not well-formed
+ */
+private static Question ReadQuestion(XMLStreamReader reader) throws XMLStreamException {
+  String       level     = reader.getAttributeValue(null, "difficulty");
+  String       topic     = null;
+  String       statement = null;
+  List<Option> options   = new ArrayList<>();
+
+  for (int depth = 1; depth > 0; ) {
+    int event = reader.next();
+    if (event == XMLStreamConstants.END_ELEMENT) {
+      depth--;
+    } else if (event == XMLStreamConstants.START_ELEMENT) {
+      switch (reader.getLocalName()) {
+        case "topic":
+          topic = reader.getElementText().trim();
+          break;
+        case "questionString":
+          statement = reader.getElementText().trim();
+          break;
+        case "option":
+          boolean correct = "true".equalsIgnoreCase(reader.getAttributeValue(null, "answer"));
+          options.add(new Option(reader.getElementText().trim(), correct));
+          break;
+        default:
+          // Unknown elements are skipped with their contents
+          depth++;
+          break;
+      }
+    }
+  }
+
+  Difficulty difficulty;
+  try {
+    difficulty = Difficulty.valueOf(level == null ? "" : level.trim().toUpperCase(Locale.ROOT));
+  } catch (IllegalArgumentException e) {
+    Logger.getLogger("global")
+          .info("Illegal question detracted: Unknown difficulty " + level + ".");
+    return null;
+  }
+  return new Question(topic, difficulty, statement, options.toArray(new Option[0]));
+}
+
+}
@@ -1,48 +1,148 @@
 package QuestionManagement;
 
 import QuestionManagement.Exceptions.NoTopicFoundException;
+import xjtlu.cpt111.assignment.quiz.model.Difficulty;
 import xjtlu.cpt111.assignment.quiz.model.Option;
 import xjtlu.cpt111.assignment.quiz.model.Question;
-import xjtlu.cpt111.assignment.quiz.util.IOUtilities;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
 
 public class QuestionManager {
+public static final  int        DEFAULT_QUESTION_COUNT = 2;  // questions of every difficulty in a quiz
+private static final Question[] NO_QUESTIONS           = new Question[0];
 
-private final Map<String, List<Question>> m_questions_ = new HashMap<>();
+/**
+ * Questions of a topic by difficulty, never modified once built
+ */
+private static final class Buckets {
+  private final EnumMap<Difficulty, Question[]> m_questions_;
+  private final long                            m_version_;    // fingerprint of the questions, in order
+
+  Buckets(EnumMap<Difficulty, Question[]> questions, long version) {
+    m_questions_ = questions;
+    m_version_   = version;
+  }
+
+  Question[] Get(Difficulty difficulty) {
+    return m_questions_.getOrDefault(difficulty, NO_QUESTIONS);
+  }
+}
+
+private final    Map<String, List<Question>> m_questions_ = new HashMap<>();
+private final    Map<String, Buckets>        m_buckets_   = new ConcurrentHashMap<>();  // questions by topic and difficulty
+private volatile int[]                       m_counts_;                                // questions of every difficulty by ordinal, replaced whole
 
 /**
- * Load questions from question database
+ * Constructs a manager drawing DEFAULT_QUESTION_COUNT questions of every difficulty into a quiz
+ */
+public QuestionManager() {
+  int[] counts = new int[Difficulty.values().length];
+  Arrays.fill(counts, DEFAULT_QUESTION_COUNT);
+  m_counts_ = counts;
+}
+
+/**
+ * Load questions from question database.
+ * Every file of the database is streamed and validated on its own worker, see {@link QuestionBankReader}, then
+ * questions are merged in the order of file names.
  *
- * @param fp database path
+ * @param fp database path, a directory of XML files or a single file
  * @return self, for chain-call
+ * @throws IOException if the database is not readable
  */
-public QuestionManager LoadQuestions(String fp) {
-  Question[] questions = IOUtilities.readQuestions(fp);
-  if (questions == null || questions.length == 0) {
-    return this;
-  }
-  for (var q : questions) {
-    if (q.getOptions() == null || q.getOptions().length < 2) {
-      Logger.getLogger("global")
-            .info("Illegal question detracted: Less than 2 options.");
-      continue;
+public QuestionManager LoadQuestions(String fp) throws IOException {
+  List<Question[]> files  = QuestionBankReader.Read(Path.of(fp), QuestionManager::IsValid);
+  Set<String>      loaded = new HashSet<>();
+  for (Question[] questions : files) {
+    for (var q : questions) {
+      if (! m_questions_.containsKey(q.getTopic())) {
+        m_questions_.put(q.getTopic(), new ArrayList<>());
+      }
+      m_questions_.get(q.getTopic())
+                  .add(q);
+      loaded.add(q.getTopic());
     }
-    if (Arrays.stream(q.getOptions())
-              .filter(Option::isCorrectAnswer)
-              .count() != 1) {
-      Logger.getLogger("global")
-            .info("Illegal question detracted: There must be exactly one correct answer.");
-      continue;
+  }
+
+  // Bucket questions of every topic loaded by difficulty, so quizzes are assembled without scanning the topic
+  for (String topic : loaded) {
+    m_buckets_.put(topic, BuildBuckets(m_questions_.get(topic)));
+  }
+return this;
+}
+
+/**
+ * Check if a question is legal, called from the workers reading the database
+ *
+ * @param q a question just read
+ * @return true if the question is kept
+ */
+private static boolean IsValid(Question q) {
+  if (q.getTopic() == null || q.getTopic().isEmpty()) {
+    Logger.getLogger("global")
+          .info("Illegal question detracted: No topic.");
+    return false;
+  }
+  if (q.getQuestionStatement() == null || q.getQuestionStatement().isEmpty()) {
+    Logger.getLogger("global")
+          .info("Illegal question detracted: No question statement.");
+    return false;
+  }
+  if (q.getOptions() == null || q.getOptions().length < 2) {
+    Logger.getLogger("global")
+          .info("Illegal question detracted: Less than 2 options.");
+    return false;
+  }
+  if (q.getOptions().length > Quiz.MAX_OPTIONS) {
+    Logger.getLogger("global")
+          .info("Illegal question detracted: More than " + Quiz.MAX_OPTIONS + " options.");
+    return false;
+  }
+  if (Arrays.stream(q.getOptions())
+            .filter(Option::isCorrectAnswer)
+            .count() != 1) {
+    Logger.getLogger("global")
+          .info("Illegal question detracted: There must be exactly one correct answer.");
+    return false;
+  }
+  return true;
+}
+
+/**
+ * Group questions by difficulty, questions without a difficulty are left out
+ *
+ * @param questions questions of a topic
+ * @return questions of every difficulty, in loading order
+ */
+private static Buckets BuildBuckets(List<Question> questions) {
+  EnumMap<Difficulty, List<Question>> lists = new EnumMap<>(Difficulty.class);
+  for (Question q : questions) {
+    if (q.getDifficulty() != null) {
+      lists.computeIfAbsent(q.getDifficulty(), k -> new ArrayList<>())
+           .add(q);
     }
-    if (! m_questions_.containsKey(q.getTopic())) {
-      m_questions_.put(q.getTopic(), new ArrayList<>());
+  }
+
+  // Fingerprint everything a quiz is drawn from, so equal versions give equal quizzes from equal seeds
+  EnumMap<Difficulty, Question[]> buckets = new EnumMap<>(Difficulty.class);
+  long                            version = 1125899906842597L;
+  for (Map.Entry<Difficulty, List<Question>> entry : lists.entrySet()) {
+    buckets.put(entry.getKey(), entry.getValue().toArray(NO_QUESTIONS));
+    version = 31 * version + entry.getKey().ordinal();
+    for (Question q : entry.getValue()) {
+      version = 31 * version + Objects.hashCode(q.getQuestionStatement());
+      for (Option o : q.getOptions()) {
+        version = 31 * version + Objects.hashCode(o.getAnswer()) * 2 + (o.isCorrectAnswer() ? 1 : 0);
+      }
     }
-    m_questions_.get(q.getTopic())
-                .add(q);
   }
-return this;
+  return new Buckets(buckets, version);
 }
 
 /**
@@ -71,79 +171,154 @@ public String[] GetTopics() {
 }
 
 /**
- * Select random questions from a list.
+ * Set how many questions of a difficulty are drawn into a quiz.
+ * Scores of quizzes are weighted for the default counts, see QuizPage.
  *
- * @param questions the list of questions
- * @param count the number of questions to select
- * @return the selected questions
+ * @param difficulty the difficulty
+ * @param count      the number of questions, 0 to draw none
+ * @return self, for chain-call
+ * @throws IllegalArgumentException if count is negative
  */
-private List<Question> selectRandomQuestions(List<Question> questions, int count) {
-  List<Question> selected = new ArrayList<>();
-  Collections.shuffle(questions);
-  for (int i = 0; i < count && i < questions.size(); i++) {
-    selected.add(questions.get(i));
+public QuestionManager SetQuestionCount(Difficulty difficulty, int count) throws IllegalArgumentException {
+  if (count < 0) {
+    throw new IllegalArgumentException("Invalid question count: " + count);
   }
-  return selected;
+  // Counts are replaced as a whole, so a quiz drawn meanwhile sees either all old or all new counts
+  synchronized (this) {
+    int[] counts = m_counts_.clone();
+    counts[difficulty.ordinal()] = count;
+    m_counts_ = counts;
+  }
+  return this;
 }
 
 /**
- * Load questions for the quiz.
+ * Get how many questions of a difficulty are drawn into a quiz.
+ *
+ * @param difficulty the difficulty
+ * @return the number of questions
+ */
+public int GetQuestionCount(Difficulty difficulty) {
+  return m_counts_[difficulty.ordinal()];
+}
+
+/**
+ * Get version of the questions of a topic that quizzes are drawn from.
+ * A quiz is regenerated exactly from its seed as long as the version and the question counts are the same.
+ *
+ * @param topic the name of the topic
+ * @return the version, a fingerprint of the questions
+ * @throws NoTopicFoundException if the topic has no question
+ */
+public long GetBankVersion(String topic) throws NoTopicFoundException {
+  Buckets buckets = m_buckets_.get(topic);
+  if (buckets == null) {
+    throw new NoTopicFoundException("No question full into such topic: " + topic);
+  }
+  return buckets.m_version_;
+}
+
+/**
+ * Select random questions from a bucket into a list, without modifying the bucket.
+ * <p>
+ * Positions are drawn by Floyd's algorithm: for every j from size - count to size - 1, a position is drawn from
+ * [0, j], and j itself is taken if that position is already drawn. Every subset is equally likely, while the order
+ * is not uniform, so the selection should be shuffled afterwards. Drawn positions are kept in an open addressing
+ * table, so the cost is O(count) whatever the size of the bucket.
+ *
+ * @param questions the bucket of questions
+ * @param count the number of questions to select, not more than the bucket holds
+ * @param random source of random positions
+ * @param selected list the selected questions are added to
+ */
+private static void selectRandomQuestions(Question[] questions, int count, RandomGenerator random,
+                                          List<Question> selected) {
+  int   size  = questions.length;
+  int[] table = new int[Integer.highestOneBit(Math.max(count, 1) * 4 - 1) << 1];  // drawn positions plus one, 0 if empty
+  int   mask  = table.length - 1;
+  for (int j = size - count; j < size; j++) {
+    int pos = random.nextInt(j + 1);
+    int i   = Slot(table, mask, pos);
+    if (table[i] != 0) {
+      // Already drawn, j cannot have been drawn before as positions drawn so far are less than j
+      pos = j;
+      i   = Slot(table, mask, pos);
+    }
+    table[i] = pos + 1;
+    selected.add(questions[pos]);
+  }
+}
+
+/**
+ * Find the slot of a position in an open addressing table
+ *
+ * @param table drawn positions plus one, 0 if empty
+ * @param mask  length of the table minus one, the length is a power of two
+ * @param pos   the position
+ * @return the slot holding the position, or the empty slot it should be put in
+ */
+private static int Slot(int[] table, int mask, int pos) {
+  int i = pos * 0x9E3779B9 & mask;
+  while (table[i] != 0 && table[i] != pos + 1) {
+    i = (i + 1) & mask;
+  }
+  return i;
+}
+
+/**
+ * Load questions for a quiz session.
+ * Questions of the bank are shared by all sessions and never modified, every quiz keeps its own order of options.
+ * The seed of the quiz is drawn from a random source of the calling thread, so quizzes may be generated on many
+ * threads at once without contention.
  *
  * @param subject the subject of the quiz
- * @return the list of selected questions
+ * @return the quiz of selected questions
  * @throws NoTopicFoundException if no questions found for the subject
  */
-public List<Question> loadQuestionsForQuiz(String subject) throws NoTopicFoundException {
-  // Get all questions
-  Question[] allQuestions = GetQuestions(subject);
-  List<Question> easy = new ArrayList<>();
-  List<Question> medium = new ArrayList<>();
-  List<Question> hard = new ArrayList<>();
-  List<Question> veryHard = new ArrayList<>();
-
-  for (Question q : allQuestions) {
-    String difficulty = q.getDifficulty().toString();
-    switch (difficulty) {
-      case "EASY":
-        easy.add(q);
-        break;
-      case "MEDIUM":
-        medium.add(q);
-        break;
-      case "HARD":
-        hard.add(q);
-        break;
-      case "VERY_HARD":
-        veryHard.add(q);
-        break;
-      default:
-        break;
-    }
+public Quiz loadQuestionsForQuiz(String subject) throws NoTopicFoundException {
+  return loadQuestionsForQuiz(subject, ThreadLocalRandom.current().nextLong());
+}
+
+/**
+ * Load questions for a quiz session from a seed.
+ * All random draws of the quiz come from a SplittableRandom of the seed, so the same seed regenerates the same
+ * quiz while the bank version and question counts are the same, see {@link #GetBankVersion(String)}.
+ *
+ * @param subject the subject of the quiz
+ * @param seed    seed of the quiz, recorded in the quiz
+ * @return the quiz of selected questions
+ * @throws NoTopicFoundException if no questions found for the subject
+ */
+public Quiz loadQuestionsForQuiz(String subject, long seed) throws NoTopicFoundException {
+  // Get questions of the topic by difficulty
+  Buckets buckets = m_buckets_.get(subject);
+  if (buckets == null) {
+    throw new NoTopicFoundException("No question full into such topic: " + subject);
   }
-  // Check if there are enough questions
-  checkQuestionCount(easy, 2, "easy");
-  checkQuestionCount(medium, 2, "medium");
-  checkQuestionCount(hard, 2, "hard");
-  checkQuestionCount(veryHard, 2, "very hard");
 
-  // Randomly select 2 questions
-  List<Question> selectedQuestions = new ArrayList<>();
-  selectedQuestions.addAll(selectRandomQuestions(easy, 2));
-  selectedQuestions.addAll(selectRandomQuestions(medium, 2));
-  selectedQuestions.addAll(selectRandomQuestions(hard, 2));
-  selectedQuestions.addAll(selectRandomQuestions(veryHard, 2));
+  // Check if there are enough questions, with the counts read once for the whole quiz
+  int[] counts = m_counts_;
+  int   total  = 0;
+  for (Difficulty d : Difficulty.values()) {
+    checkQuestionCount(buckets.Get(d), counts[d.ordinal()],
+                       d.name().toLowerCase(Locale.ROOT).replace('_', ' '));
+    total += counts[d.ordinal()];
+  }
 
-  // Shuffle question order
-  Collections.shuffle(selectedQuestions);
+  // Randomly select the configured number of questions of every difficulty
+  RandomGenerator random            = new SplittableRandom(seed);
+  List<Question>  selectedQuestions = new ArrayList<>(total);
+  for (Difficulty d : Difficulty.values()) {
+    selectRandomQuestions(buckets.Get(d), counts[d.ordinal()], random, selectedQuestions);
+  }
 
-  // Shuffle options for each question
-  for (Question q : selectedQuestions) {
-    List<Option> optionList = new ArrayList<>(Arrays.asList(q.getOptions()));
-    Collections.shuffle(optionList);
-    q.setOptions(List.of(optionList.toArray(new Option[0])));
+  // Shuffle question order
+  for (int i = selectedQuestions.size() - 1; i > 0; i--) {
+    Collections.swap(selectedQuestions, i, random.nextInt(i + 1));
   }
 
-  return selectedQuestions;
+  // Shuffle options for each question within the quiz
+  return new Quiz(subject, seed, buckets.m_version_, selectedQuestions, random);
 }
 
 /**
@@ -168,13 +343,13 @@ public int getMaxOptionsCount(List<Question> selectedQuestions) {
 /**
  * Checks if the number of questions in the list meets the required count for a given difficulty.
  *
- * @param questions the list of questions to check
+ * @param questions the questions to check
  * @param requiredCount the required number of questions
  * @param difficulty the difficulty level of the questions
  * @throws IllegalArgumentException if the number of questions is less than the required count
  */
-private void checkQuestionCount(List<Question> questions, int requiredCount, String difficulty) throws IllegalArgumentException {
-  if (questions.size() < requiredCount) {
+private void checkQuestionCount(Question[] questions, int requiredCount, String difficulty) throws IllegalArgumentException {
+  if (questions.length < requiredCount) {
     throw new Exceptions.NotEnoughQuestionsException("Not enough " + difficulty + " questions in the question bank.");
   }
 }
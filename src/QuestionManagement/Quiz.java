@@ -0,0 +1,169 @@
+package QuestionManagement;
+
+import xjtlu.cpt111.assignment.quiz.model.Option;
+import xjtlu.cpt111.assignment.quiz.model.Question;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Questions drawn into a quiz session.
+ * <p>
+ * A quiz refers to questions of the question bank, which are never modified, and keeps its own order of options
+ * for every question as a permutation of bytes. Quizzes are immutable, so sessions never see each other's orders
+ * and may run on any thread.
+ * <p>
+ * The seed a quiz is drawn from and the version of the bank it is drawn from are kept, so the quiz can be
+ * regenerated by {@link QuestionManager#loadQuestionsForQuiz(String, long)}.
+ */
+public final class Quiz {
+public static final int MAX_OPTIONS = 256;  // options of a question indexed by a byte
+
+/**
+ * A question of a quiz with its order of options
+ */
+public static final class Item {
+  private final Question m_question_;
+  private final byte[]   m_order_;     // position of every shown option in the options of the question
+
+  private Item(Question question, RandomGenerator random) {
+    int n = question.getOptions().length;
+    m_question_ = question;
+    m_order_    = new byte[n];
+    for (int i = 0; i < n; i++) {
+      // Inside-out Fisher-Yates shuffle
+      int j = random.nextInt(i + 1);
+      m_order_[i] = m_order_[j];
+      m_order_[j] = (byte) i;
+    }
+  }
+
+  /**
+   * Get the question, shared with other quizzes and not to be modified
+   *
+   * @return the question
+   */
+  public Question GetQuestion() {
+    return m_question_;
+  }
+
+  /**
+   * Get count of options
+   *
+   * @return count of options
+   */
+  public int GetOptionCount() {
+    return m_order_.length;
+  }
+
+  /**
+   * Get an option in the order of this quiz
+   *
+   * @param i position of the option, starting from 0
+   * @return the option
+   * @throws IndexOutOfBoundsException if i is out of range
+   */
+  public Option GetOption(int i) throws IndexOutOfBoundsException {
+    return m_question_.getOptions()[m_order_[i] & 0xff];
+  }
+
+  /**
+   * Get all options in the order of this quiz
+   *
+   * @return a new array of options
+   */
+  public Option[] GetOptions() {
+    Option[] options = m_question_.getOptions();
+    Option[] ret     = new Option[m_order_.length];
+    for (int i = 0; i < ret.length; i++) {
+      ret[i] = options[m_order_[i] & 0xff];
+    }
+    return ret;
+  }
+}
+
+private final String m_topic_;
+private final long   m_seed_;         // seed of all random draws of the quiz
+private final long   m_version_;      // version of the questions of the topic
+private final Item[] m_items_;
+private final int    m_maxOptions_;   // most options of a question
+
+/**
+ * Construct a quiz, shuffling options of every question
+ *
+ * @param topic     topic of the quiz
+ * @param seed      seed the quiz is drawn from
+ * @param version   version of the questions of the topic
+ * @param questions questions in the order of the quiz, having at most MAX_OPTIONS options
+ * @param random    source of the option orders, continuing the draws from the seed
+ */
+Quiz(String topic, long seed, long version, List<Question> questions, RandomGenerator random) {
+  int maxOptions = 0;
+  m_topic_   = topic;
+  m_seed_    = seed;
+  m_version_ = version;
+  m_items_   = new Item[questions.size()];
+  for (int i = 0; i < m_items_.length; i++) {
+    m_items_[i] = new Item(questions.get(i), random);
+    maxOptions  = Math.max(maxOptions, m_items_[i].GetOptionCount());
+  }
+  m_maxOptions_ = maxOptions;
+}
+
+/**
+ * Get topic of the quiz
+ *
+ * @return the name of the topic
+ */
+public String GetTopic() {
+  return m_topic_;
+}
+
+/**
+ * Get seed the quiz is drawn from
+ *
+ * @return the seed
+ */
+public long GetSeed() {
+  return m_seed_;
+}
+
+/**
+ * Get version of the questions the quiz is drawn from, see {@link QuestionManager#GetBankVersion(String)}
+ *
+ * @return the version
+ */
+public long GetBankVersion() {
+  return m_version_;
+}
+
+/**
+ * Get count of questions
+ *
+ * @return count of questions
+ */
+public int GetSize() {
+  return m_items_.length;
+}
+
+/**
+ * Get a question of the quiz
+ *
+ * @param i position of the question, starting from 0
+ * @return the question with its order of options
+ * @throws IndexOutOfBoundsException if i is out of range
+ */
+public Item GetItem(int i) throws IndexOutOfBoundsException {
+  return m_items_[i];
+}
+
+/**
+ * Get the maximum number of options among the questions
+ *
+ * @return the maximum number of options, 0 if the quiz is empty
+ */
+public int GetMaxOptionsCount() {
+  return m_maxOptions_;
+}
+
+}
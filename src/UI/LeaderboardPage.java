@@ -9,16 +9,17 @@ import javafx.scene.control.Label;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import UserManagement.Leaderboard;
 import UserManagement.UserManager;
 import UserManagement.Users;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * LeaderboardPage class representing the user interface for viewing the leaderboard.
  */
 public class LeaderboardPage{
+private static final int PAGE_SIZE = 10;  // users shown on a page of the leaderboard
 
 private final UserManager     userManager   =   Logical.getInstance().getUserManager();
 private final Users           currentUser;
@@ -111,35 +112,31 @@ public void start(Stage primaryStage) {
 }
 
 /**
- * Show leaderboard for the specified subject.
+ * Show the first page of the leaderboard for the specified subject.
  *
  * @param subject the subject to view the leaderboard for
  */
 private void showLeaderboard(String subject) {
-  // Get all users
-  List<Users>   allUsers  =   List.copyOf(userManager.GetAllUsers());
-  List<String>  topUsers  =   new ArrayList<>();
-  int highestScore        =   -1;
-
-  // Iterate through all users to find the highest score
-  for (Users user : allUsers) {
-    Integer userHighestScore = user.GetTopicSpecifiedHighestRecord(subject);
-    if (userHighestScore != null) {
-      if (userHighestScore > highestScore) {
-        highestScore = userHighestScore;
-        topUsers.clear();
-        topUsers.add(String.format("%s (ID: %s)", user.GetName(), user.GetId()));
-      } else if (userHighestScore == highestScore) {
-        topUsers.add(String.format("%s (ID: %s)", user.GetName(), user.GetId()));
-      }
-    }
-  }
+  showLeaderboard(subject, 1);
+}
 
+/**
+ * Show a page of the leaderboard for the specified subject.
+ *
+ * @param subject the subject to view the leaderboard for
+ * @param from    position of the first user on the page, starting from 1
+ */
+private void showLeaderboard(String subject, int from) {
+  // Look up the page and the current user's rank in the leaderboard
+  Leaderboard               leaderboard   =   userManager.GetLeaderboard();
+  List<Leaderboard.Entry>   entries       =   leaderboard.GetPage(subject, from, PAGE_SIZE);
+  int                       rankedCount   =   leaderboard.GetRankedCount(subject);
+  Integer                   currentRank   =   leaderboard.GetRank(subject, currentUser);
 
   // Update alert box
   alertBox.getChildren().clear();
-  if (!topUsers.isEmpty()) {
-    Label titleLabel  =   new Label("Top User(s) \n- " + subject);
+  if (!entries.isEmpty()) {
+    Label titleLabel  =   new Label("Leaderboard \n- " + subject);
     titleLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-alignment: center;");
 
     Label emptyLine   =   new Label("");
@@ -147,16 +144,30 @@ private void showLeaderboard(String subject) {
     VBox usersBox     =   new VBox();
     usersBox.setStyle("-fx-alignment: center; -fx-spacing: 5px;");
 
-    for (String user : topUsers) {
-      Label userLabel =   new Label(user);
-      userLabel.setStyle("-fx-font-size: 14px;");
+    for (Leaderboard.Entry entry : entries) {
+      Users user      =   entry.GetUser();
+      Label userLabel =   new Label(String.format("#%d  %s (ID: %s)  %d", entry.GetRank(), user.GetName(), user.GetId(), entry.GetScore()));
+      userLabel.setStyle(user == currentUser ? "-fx-font-size: 14px; -fx-font-weight: bold;" : "-fx-font-size: 14px;");
       usersBox.getChildren().add(userLabel);
     }
 
-    Label scoreLabel  =  new Label("\nHighest Score: " + highestScore);
-    scoreLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-alignment: center;");
-
-    alertBox.getChildren().addAll(titleLabel, emptyLine, usersBox, scoreLabel);
+    String rankText   =   currentRank != null
+                          ? String.format("\nYour Rank: %d of %d", currentRank, rankedCount)
+                          : "\nYou have no score on this subject.";
+    Label rankLabel   =   new Label(rankText);
+    rankLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-alignment: center;");
+
+    // Page through the ranks
+    Button prevButton =   new Button("Previous");
+    prevButton.setDisable(from == 1);
+    prevButton.setOnAction(e -> showLeaderboard(subject, Math.max(1, from - PAGE_SIZE)));
+    Button nextButton =   new Button("Next");
+    nextButton.setDisable(from + PAGE_SIZE > rankedCount);
+    nextButton.setOnAction(e -> showLeaderboard(subject, from + PAGE_SIZE));
+    HBox pageBox      =   new HBox(10, prevButton, nextButton);
+    pageBox.setStyle("-fx-alignment: center; -fx-padding: 10px;");
+
+    alertBox.getChildren().addAll(titleLabel, emptyLine, usersBox, rankLabel, pageBox);
   } else {
     Label alertLabel  =   new Label("No scores available for this subject.");
     alertLabel.setStyle("-fx-font-size: 14px; -fx-text-alignment: center;");
@@ -1,15 +1,16 @@
 package UI;
 
 import core.Logical;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import UserManagement.Users;
-import xjtlu.cpt111.assignment.quiz.model.Question;
 import xjtlu.cpt111.assignment.quiz.model.Option;
 import QuestionManagement.QuestionManager;
+import QuestionManagement.Quiz;
 import QuestionManagement.Exceptions.NoTopicFoundException;
 import QuestionManagement.Exceptions.NotEnoughQuestionsException;
 
@@ -23,7 +24,7 @@ public class QuizPage{
 private final   Users             currentUser;
 private final   QuestionManager   questionManager = Logical.getInstance().getQuestionManager();
 private final   String            subject;
-private         List<Question>    questions;
+private         Quiz              quiz;
 private         int               currentQuestionIndex  =   0;
 private         int               totalScore            =   0;
 
@@ -76,8 +77,8 @@ public void start(Stage primaryStage) {
   // Ensure questions are loaded
   loadQuestions();
 
-  // return if questions list is null or empty
-  if (this.questions == null || this.questions.isEmpty()) {
+  // return if quiz is null or empty
+  if (this.quiz == null || this.quiz.GetSize() == 0) {
     return;
   }
 
@@ -143,7 +144,7 @@ public void start(Stage primaryStage) {
  * @return the maximum number of options
  */
 private int getMaxOptionsCount() {
-  return questionManager.getMaxOptionsCount(questions);
+  return quiz.GetMaxOptionsCount();
 }
 
 /**
@@ -151,7 +152,7 @@ private int getMaxOptionsCount() {
  */
 private void loadQuestions() {
   try {
-    questions = questionManager.loadQuestionsForQuiz(subject);
+    quiz = questionManager.loadQuestionsForQuiz(subject);
   } catch (NoTopicFoundException e) {
     // If no questions found, show error message and return
     Alert alert = new Alert(Alert.AlertType.ERROR, "No questions found for this subject.", ButtonType.OK);
@@ -177,21 +178,19 @@ private void loadQuestions() {
  * Show the current question.
  */
 private void showQuestion() {
-  if (currentQuestionIndex >= questions.size()) {
+  if (currentQuestionIndex >= quiz.GetSize()) {
     // All questions completed, show score
     showScore();
     return;
   }
 
-  Question currentQuestion = questions.get(currentQuestionIndex);
+  Quiz.Item currentQuestion = quiz.GetItem(currentQuestionIndex);
 
   // Display question text
-  questionLabel.setText("Question " + (currentQuestionIndex + 1) + ": " + currentQuestion.getQuestionStatement());
+  questionLabel.setText("Question " + (currentQuestionIndex + 1) + ": " + currentQuestion.GetQuestion().getQuestionStatement());
 
-  // Get options
-  Option[] options = currentQuestion.getOptions();
-  List<Option> optionList = Arrays.asList(options);
-  // Shuffle options already done in loadQuestions()
+  // Get options, in the order shuffled for this quiz
+  List<Option> optionList = Arrays.asList(currentQuestion.GetOptions());
 
   // Display options
   for (int i = 0; i < optionButtons.size(); i++) {
@@ -206,7 +205,7 @@ private void showQuestion() {
   }
 
   // Change "Next" button text to "Submit" for the last question
-  if (currentQuestionIndex == questions.size() - 1) {
+  if (currentQuestionIndex == quiz.GetSize() - 1) {
     nextButton.setText("Submit");
   } else {
     nextButton.setText("Next");
@@ -223,7 +222,7 @@ private void handleNextAction() {
     Option selectedOption = (Option) selectedToggle.getUserData();
     if (selectedOption.isCorrectAnswer()) {
       // Assign score based on question difficulty
-      String difficulty  =  questions.get(currentQuestionIndex).getDifficulty().toString();
+      String difficulty  =  quiz.GetItem(currentQuestionIndex).GetQuestion().getDifficulty().toString();
       int score          =  difficultyScoreMap.getOrDefault(difficulty, 0);
       totalScore        +=  score;
     }
@@ -251,17 +250,20 @@ private void showScore() {
   // Record the score in the user's ScoreRecords
   currentUser.NewRecord(subject, totalScore);
 
-  try {
-    // Save score information
-    Logical.getInstance()
-           .getUserManager()
-           .SaveUserInfo("resources/user.csv", "resources/score.csv");
-  } catch (IOException ex) {
-    // Handle save error
-    Alert errorAlert = new Alert(Alert.AlertType.ERROR, "Error saving score information.", ButtonType.OK);
-    errorAlert.showAndWait();
-    ex.printStackTrace();
-  }
+  // Save score information and keep the attempt in the full history, in the background
+  Logical.getInstance()
+         .getUserManager()
+         .SubmitAttempt(currentUser, subject, totalScore)
+         .whenComplete((v, ex) -> {
+           if (ex != null) {
+             // Handle save error
+             Platform.runLater(() -> {
+               Alert errorAlert = new Alert(Alert.AlertType.ERROR, "Error saving score information.", ButtonType.OK);
+               errorAlert.showAndWait();
+             });
+             ex.printStackTrace();
+           }
+         });
 
   // Return to Menu
   Menu menu = new Menu(currentUser);
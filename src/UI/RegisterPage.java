@@ -1,6 +1,7 @@
 package UI;
 
 import core.Logical;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
@@ -9,8 +10,6 @@ import UserManagement.Users;
 import UserManagement.UserManager;
 import UserManagement.Exceptions.DuplicateUserException;
 
-import java.io.IOException;
-
 /**
  * RegisterPage class representing the user interface for user registration.
  */
@@ -73,8 +72,16 @@ public void start(Stage primaryStage) {
       Users newUser = new Users(userId, userName, password);
       userManager.RegisterUser(newUser);
 
-      // Save user information to file
-      userManager.SaveUserInfo("resources/user.csv", "resources/score.csv");
+      // Save user information to file in the background
+      userManager.SubmitNewUser(newUser)
+                 .whenComplete((v, ex) -> {
+                   if (ex != null) {
+                     Platform.runLater(() -> {
+                       Alert errorAlert = new Alert(Alert.AlertType.ERROR, "Error saving user information.", ButtonType.OK);
+                       errorAlert.showAndWait();
+                     });
+                   }
+                 });
 
       // Auto login and navigate to Menu
       Menu menu = new Menu(newUser); // Create Menu page
@@ -84,8 +91,6 @@ public void start(Stage primaryStage) {
       messageLabel.setText("User ID already exists.");
     } catch (UserManagement.Exceptions.UserInformationInvalidException ex) {
       messageLabel.setText("User ID, name, and password cannot be empty");
-    } catch (IOException ex) {
-      messageLabel.setText("Error saving user information.");
     }
   });
 
@@ -3,23 +3,37 @@ package UI;
 import QuestionManagement.Exceptions;
 import QuestionManagement.QuestionManager;
 import core.Logical;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import UserManagement.AttemptLog;
 import UserManagement.Users;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
 
 
 /**
  * UserDashboardPage class representing the user interface for viewing history scores.
  */
 public class UserDashboardPage {
+private static final int               HISTORY_SIZE = 20;  // attempts shown from the attempt log
+private static final DateTimeFormatter TIME_FORMAT  = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")
+                                                                       .withZone(ZoneId.systemDefault());
 
 private final Users           currentUser;
 private       VBox            alertBox;
+private       String          shownSubject;  // subject last asked for, histories read for others are dropped
 
 /**
  * Constructor for UserDashboardPage.
@@ -121,12 +135,50 @@ public void start(Stage primaryStage) {
  * @param subject the subject to view history scores for
  */
 private void showHistoryScores(String subject) {
+  shownSubject = subject;
+  AttemptLog log = Logical.getInstance().getUserManager().GetAttemptLog();
+  if (log == null) {
+    showHistoryScores(subject, null);
+    return;
+  }
+
+  // Read the user's last attempts from the attempt log in the background, only they are read from the log
+  String userId = currentUser.GetId();
+  CompletableFuture.supplyAsync(() -> {
+                     try {
+                       return log.GetHistory(userId, subject, HISTORY_SIZE);
+                     } catch (IOException e) {
+                       throw new UncheckedIOException(e);
+                     }
+                   })
+                   .whenComplete((history, ex) -> {
+                     if (ex != null) {
+                       Logger.getLogger("global").warning("Cannot read attempt log: " + ex.getMessage());
+                     }
+                     Platform.runLater(() -> {
+                       // Drop the history if another subject was asked for meanwhile
+                       if (subject.equals(shownSubject)) {
+                         showHistoryScores(subject, history);
+                       }
+                     });
+                   });
+}
+
+/**
+ * Show history scores for the specified subject, with attempts read from the attempt log.
+ *
+ * @param subject the subject to view history scores for
+ * @param history the user's last attempts on the subject, or null to show recent scores only
+ */
+private void showHistoryScores(String subject, AttemptLog.History history) {
+  List<AttemptLog.Attempt> attempts = history == null ? List.of() : history.GetAttempts();
+
   // Get the user's recent scores for the subject
   List<Integer> scoresList = currentUser.GetTopicSpecifiedRecentRecords(subject);
 
   // Update alert box
   alertBox.getChildren().clear();
-  if (scoresList == null || scoresList.isEmpty()) {
+  if ((scoresList == null || scoresList.isEmpty()) && attempts.isEmpty()) {
     Label alertLabel = new Label("No history scores for this subject.");
     alertLabel.setStyle("-fx-font-size: 14px; -fx-text-alignment: center;");
     alertBox.getChildren().add(alertLabel);
@@ -145,21 +197,38 @@ private void showHistoryScores(String subject) {
   VBox scoresBox = new VBox();
   scoresBox.setStyle("-fx-alignment: center; -fx-spacing: 5px;");
 
-  for (int i = 0; i < scoresList.size(); i++) {
-    Integer score = scoresList.get(i);
-    if (score != null) {
-      Label scoreLabel = new Label(String.format("Attempt %d:\t%3d", i + 1, score));
+  if (!attempts.isEmpty()) {
+    // Number attempts from the first one ever logged
+    int first = history.GetCount() - attempts.size() + 1;
+    for (int i = 0; i < attempts.size(); i++) {
+      AttemptLog.Attempt attempt = attempts.get(i);
+      Label scoreLabel = new Label(String.format("Attempt %d:\t%3d\t%s", first + i, attempt.GetScore(),
+                                                 TIME_FORMAT.format(Instant.ofEpochMilli(attempt.GetTime()))));
       scoreLabel.setStyle("-fx-font-size: 14px;");
       scoresBox.getChildren().add(scoreLabel);
     }
+  } else {
+    for (int i = 0; i < scoresList.size(); i++) {
+      Integer score = scoresList.get(i);
+      if (score != null) {
+        Label scoreLabel = new Label(String.format("Attempt %d:\t%3d", i + 1, score));
+        scoreLabel.setStyle("-fx-font-size: 14px;");
+        scoresBox.getChildren().add(scoreLabel);
+      }
+    }
   }
 
+  // Scroll through long histories
+  ScrollPane scoresPane = new ScrollPane(scoresBox);
+  scoresPane.setFitToWidth(true);
+  scoresPane.setMaxHeight(200);
+
   if (highestScore != null) {
     Label highestScoreLabel = new Label("\nHighest Score: " + highestScore);
     highestScoreLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-alignment: center;");
-    alertBox.getChildren().addAll(titleLabel, emptyLine, scoresBox, highestScoreLabel);
+    alertBox.getChildren().addAll(titleLabel, emptyLine, scoresPane, highestScoreLabel);
   } else {
-    alertBox.getChildren().addAll(titleLabel, emptyLine, scoresBox);
+    alertBox.getChildren().addAll(titleLabel, emptyLine, scoresPane);
   }
 }
 }
\ No newline at end of file
@@ -0,0 +1,591 @@
+package UserManagement;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Append-only log of every attempt of users on topics, keeps the whole history that score records drop.
+ * <p>
+ * The log is a binary file of records, every number is a varint. A record starts with a head, whose lowest bit tells
+ * its kind:
+ * <pre>
+ *   key      head = userLen &lt;&lt; 1 | 1,  topicLen,  user ID and topic in UTF-8
+ *   attempt  head = keyId &lt;&lt; 1,  back,  timeDelta,  score
+ * </pre>
+ * Keys are numbered in the order they are defined. An attempt is delta encoded against the previous attempt of its key:
+ * back is the distance in bytes to that attempt, timeDelta the milliseconds since it, both 0 and the absolute time
+ * for the first attempt. Most attempts take 4 to 8 bytes.
+ * <p>
+ * Only the last attempt of every key and a checkpoint every {@link #CHECKPOINT_INTERVAL} attempts are kept in memory,
+ * so queries read just the attempts they return, walking back from the nearest checkpoint. The file is scanned once
+ * on opening to rebuild them, a torn record at the end is dropped. The file is not locked, a log must not be opened
+ * twice.
+ */
+public class AttemptLog implements Closeable {
+public static final  int CHECKPOINT_INTERVAL = 64;          // attempts between checkpoints of a key
+
+private static final int MAGIC               = 0x41544c47;  // "ATLG"
+private static final int VERSION             = 1;
+private static final int HEADER_SIZE         = 8;           // magic, version
+private static final int MAX_ATTEMPT_SIZE    = 5 + 10 + 10 + 5;
+private static final int WINDOW_SIZE         = 4096;        // bytes read at once
+
+/**
+ * An attempt of a user on a topic
+ */
+public static final class Attempt {
+  private final long m_time_;
+  private final int  m_score_;
+
+  private Attempt(long time, int score) {
+    m_time_  = time;
+    m_score_ = score;
+  }
+
+  /**
+   * Get time of the attempt
+   *
+   * @return milliseconds since the epoch
+   */
+  public long GetTime() {
+    return m_time_;
+  }
+
+  /**
+   * Get score of the attempt
+   *
+   * @return score
+   */
+  public int GetScore() {
+    return m_score_;
+  }
+}
+
+/**
+ * The last attempts of a user on a topic, along with the count of all attempts at the same moment
+ */
+public static final class History {
+  private final int           m_count_;
+  private final List<Attempt> m_attempts_;
+
+  private History(int count, List<Attempt> attempts) {
+    m_count_    = count;
+    m_attempts_ = attempts;
+  }
+
+  /**
+   * Get count of all attempts, including those not listed
+   *
+   * @return count of attempts
+   */
+  public int GetCount() {
+    return m_count_;
+  }
+
+  /**
+   * Get the last attempts, the last one being attempt number {@link #GetCount()}
+   *
+   * @return attempts, oldest first
+   */
+  public List<Attempt> GetAttempts() {
+    return m_attempts_;
+  }
+}
+
+/**
+ * Attempts of a user on a topic
+ */
+private static final class Key {
+  private final int    m_id_;
+  private       long   m_last_  = - 1;           // offset of the last attempt, negative if none
+  private       long   m_time_  = 0;             // time of the last attempt
+  private       int    m_count_ = 0;             // count of attempts
+  private       long[] m_marks_ = new long[0];   // offset and time of every checkpoint attempt, in order
+
+  Key(int id) {
+    m_id_ = id;
+  }
+
+  void Add(long offset, long time) {
+    if (m_count_ % CHECKPOINT_INTERVAL == 0) {
+      int n = m_marks_.length;
+      m_marks_        = Arrays.copyOf(m_marks_, n + 2);
+      m_marks_[n]     = offset;
+      m_marks_[n + 1] = time;
+    }
+    m_last_  = offset;
+    m_time_  = time;
+    m_count_++;
+  }
+}
+
+/**
+ * A window of the file read at once, records are read backward so it is filled up to a position
+ */
+private final class Window {
+  private final ByteBuffer m_buffer_ = ByteBuffer.allocate(WINDOW_SIZE).limit(0);
+  private final long[]     m_cursor_ = { 0 };   // read position in the buffer
+  private       long       m_start_  = 0;       // offset of the first byte in the buffer
+
+  /**
+   * Move to an attempt, reading from the file if the attempt is not in the window
+   */
+  void Seek(long offset) throws IOException {
+    long end = m_start_ + m_buffer_.limit();
+    if (offset < m_start_ || offset + MAX_ATTEMPT_SIZE > end && end < m_end_) {
+      m_start_ = Math.max(HEADER_SIZE, offset + MAX_ATTEMPT_SIZE - WINDOW_SIZE);
+      m_buffer_.clear()
+               .limit((int) Math.min(WINDOW_SIZE, m_end_ - m_start_));
+      ReadFully(m_channel_, m_buffer_, m_start_);
+    }
+    m_cursor_[0] = offset - m_start_;
+  }
+
+  long Next() throws IOException {
+    long val = ReadVarint(m_buffer_, m_cursor_);
+    if (val < 0) {
+      throw new IOException("Attempt log is damaged at " + (m_start_ + m_cursor_[0]));
+    }
+    return val;
+  }
+}
+
+private final FileChannel                   m_channel_;
+private final Map<String, Map<String, Key>> m_keys_   = new HashMap<>();                        // keys by user ID and topic
+private final List<Key>                     m_ids_    = new ArrayList<>();                      // keys by ID
+private final ByteBuffer                    m_record_ = ByteBuffer.allocate(MAX_ATTEMPT_SIZE);  // attempt being appended
+private       long                          m_end_;                                             // end of records
+
+private AttemptLog(FileChannel channel) {
+  m_channel_ = channel;
+}
+
+/**
+ * Open a log, the file is created if not exists
+ *
+ * @param fp log file
+ * @return the log
+ * @throws IOException if the file is not accessible or not a log
+ */
+public static AttemptLog Open(String fp) throws IOException {
+  FileChannel channel = FileChannel.open(Path.of(fp), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                         StandardOpenOption.WRITE);
+  AttemptLog log = new AttemptLog(channel);
+  try {
+    if (channel.size() == 0) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                                    .putInt(MAGIC)
+                                    .putInt(VERSION)
+                                    .flip();
+      WriteFully(channel, header, 0);
+      log.m_end_ = HEADER_SIZE;
+    } else {
+      log.Scan(fp);
+    }
+  } catch (IOException | RuntimeException e) {
+    channel.close();
+    throw e;
+  }
+  return log;
+}
+
+/**
+ * Rebuild keys and checkpoints from the file. A torn record at the end is dropped with anything after it.
+ *
+ * @param fp log file, for error messages
+ * @throws IOException if the file is not a log
+ */
+private void Scan(String fp) throws IOException {
+  long size = m_channel_.size();
+  ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+  if (size < HEADER_SIZE || m_channel_.read(header, 0) < HEADER_SIZE
+      || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+    throw new IOException("Not an attempt log: " + fp);
+  }
+
+  // Read forward through a buffer, refilled whenever less than an attempt is left in it
+  ByteBuffer buffer = ByteBuffer.allocate(WINDOW_SIZE * 16).limit(0);
+  long[]     cursor = { 0 };         // read position in the buffer
+  long       start  = HEADER_SIZE;   // offset of the first byte in the buffer
+  long       off    = HEADER_SIZE;
+  while (off < size) {
+    if (buffer.limit() - (off - start) < MAX_ATTEMPT_SIZE && start + buffer.limit() < size) {
+      start = off;
+      buffer.clear()
+            .limit((int) Math.min(buffer.capacity(), size - start));
+      ReadFully(m_channel_, buffer, start);
+    }
+    cursor[0] = off - start;
+    long head = ReadVarint(buffer, cursor);
+    if (head < 0) {
+      break;
+    }
+    if ((head & 1) != 0) {
+      long userLen  = head >>> 1;
+      long topicLen = ReadVarint(buffer, cursor);
+      long keyEnd   = start + cursor[0] + userLen + topicLen;
+      if (userLen > Short.MAX_VALUE || topicLen < 0 || topicLen > Short.MAX_VALUE || keyEnd > size) {
+        break;
+      }
+      byte[] key = new byte[(int) (userLen + topicLen)];
+      ReadFully(m_channel_, ByteBuffer.wrap(key), start + cursor[0]);
+      Define(new String(key, 0, (int) userLen, StandardCharsets.UTF_8),
+             new String(key, (int) userLen, (int) topicLen, StandardCharsets.UTF_8));
+      off = keyEnd;
+    } else {
+      long id    = head >>> 1;
+      long back  = ReadVarint(buffer, cursor);
+      long dt    = ReadVarint(buffer, cursor);
+      long score = ReadVarint(buffer, cursor);
+      if (back < 0 || dt < 0 || score < 0 || id >= m_ids_.size()) {
+        break;
+      }
+      Key key = m_ids_.get((int) id);
+      if (key.m_last_ < 0 ? back != 0 : back != off - key.m_last_) {
+        break;
+      }
+      key.Add(off, key.m_last_ < 0 ? dt : key.m_time_ + dt);
+      off = start + cursor[0];
+    }
+  }
+  if (off < size) {
+    Logger.getLogger("global").warning("Attempt log is damaged at " + off + ": " + fp + ". Dropping records after it.");
+    m_channel_.truncate(off);
+  }
+  m_end_ = off;
+}
+
+/**
+ * Append an attempt
+ *
+ * @param userId user ID
+ * @param topic  the name of the topic
+ * @param time   milliseconds since the epoch, taken as the time of the last attempt if earlier than it
+ * @param score  score of the attempt
+ * @return self, for chain-call
+ * @throws IOException              if the file is not writable
+ * @throws IllegalArgumentException if the score is negative, or the user ID or topic is too long
+ */
+public synchronized AttemptLog Append(String userId, String topic, long time, int score)
+    throws IOException, IllegalArgumentException {
+  if (score < 0) {
+    throw new IllegalArgumentException("Score value is out of range: " + score);
+  }
+  Key key = Find(userId, topic);
+  if (key == null) {
+    key = WriteKey(userId, topic);
+  }
+
+  long offset = m_end_;
+  long dt     = key.m_last_ < 0 ? Math.max(time, 0) : Math.max(time - key.m_time_, 0);
+  m_record_.clear();
+  PutVarint(m_record_, (long) key.m_id_ << 1);
+  PutVarint(m_record_, key.m_last_ < 0 ? 0 : offset - key.m_last_);
+  PutVarint(m_record_, dt);
+  PutVarint(m_record_, score);
+  m_record_.flip();
+  int size = m_record_.remaining();
+  WriteFully(m_channel_, m_record_, offset);
+  m_end_ = offset + size;
+  key.Add(offset, key.m_last_ < 0 ? dt : key.m_time_ + dt);
+  return this;
+}
+
+/**
+ * Get count of attempts of a user on a topic
+ *
+ * @param userId user ID
+ * @param topic  the name of the topic
+ * @return count of attempts
+ */
+public synchronized int GetCount(String userId, String topic) {
+  Key key = Find(userId, topic);
+  return key == null ? 0 : key.m_count_;
+}
+
+/**
+ * Get topics a user has attempted
+ *
+ * @param userId user ID
+ * @return an array of topics, in alphabetical order
+ */
+public synchronized String[] GetTopics(String userId) {
+  String[] topics = m_keys_.getOrDefault(userId, Map.of())
+                           .keySet()
+                           .toArray(new String[0]);
+  Arrays.sort(topics);
+  return topics;
+}
+
+/**
+ * Get the last attempts of a user on a topic
+ *
+ * @param userId user ID
+ * @param topic  the name of the topic
+ * @param count  count of attempts
+ * @return attempts, oldest first, fewer than count if not enough attempts
+ * @throws IOException              if the file is not readable
+ * @throws IllegalArgumentException if count is negative
+ */
+public synchronized List<Attempt> GetRecent(String userId, String topic, int count)
+    throws IOException, IllegalArgumentException {
+  if (count < 0) {
+    throw new IllegalArgumentException("Invalid count: " + count);
+  }
+  Key key = Find(userId, topic);
+  if (key == null) {
+    return List.of();
+  }
+  return Walk(key, key.m_last_, key.m_time_, Long.MIN_VALUE, Long.MAX_VALUE, count);
+}
+
+/**
+ * Get the last attempts of a user on a topic with the count of all of them, so that attempts can be numbered even
+ * while others are appended
+ *
+ * @param userId user ID
+ * @param topic  the name of the topic
+ * @param count  count of attempts
+ * @return history, fewer attempts than count if not enough attempts
+ * @throws IOException              if the file is not readable
+ * @throws IllegalArgumentException if count is negative
+ */
+public synchronized History GetHistory(String userId, String topic, int count)
+    throws IOException, IllegalArgumentException {
+  return new History(GetCount(userId, topic), GetRecent(userId, topic, count));
+}
+
+/**
+ * Get attempts of a user on a topic within a time window
+ *
+ * @param userId user ID
+ * @param topic  the name of the topic
+ * @param from   start of the window, inclusive
+ * @param to     end of the window, exclusive
+ * @return attempts, oldest first
+ * @throws IOException if the file is not readable
+ */
+public synchronized List<Attempt> GetRange(String userId, String topic, long from, long to) throws IOException {
+  Key key = Find(userId, topic);
+  if (key == null || from >= to) {
+    return List.of();
+  }
+
+  // Start from the first checkpoint at or after the end of the window, or from the last attempt
+  long[] marks = key.m_marks_;
+  int    lo    = 0;
+  int    hi    = marks.length / 2;
+  while (lo < hi) {
+    int mid = (lo + hi) >>> 1;
+    if (marks[mid * 2 + 1] < to) {
+      lo = mid + 1;
+    } else {
+      hi = mid;
+    }
+  }
+  if (lo < marks.length / 2) {
+    return Walk(key, marks[lo * 2], marks[lo * 2 + 1], from, to, Integer.MAX_VALUE);
+  }
+  return Walk(key, key.m_last_, key.m_time_, from, to, Integer.MAX_VALUE);
+}
+
+/**
+ * Write appended attempts to the storage device
+ *
+ * @return self, for chain-call
+ * @throws IOException if an I/O error occurs
+ */
+public synchronized AttemptLog Force() throws IOException {
+  m_channel_.force(false);
+  return this;
+}
+
+/**
+ * Write appended attempts to the storage device and close the file
+ *
+ * @throws IOException if an I/O error occurs
+ */
+@Override
+public synchronized void close() throws IOException {
+  if (m_channel_.isOpen()) {
+    Force();
+    m_channel_.close();
+  }
+}
+
+/**
+ * Walk back through attempts of a key
+ *
+ * @param key    the key
+ * @param offset offset of the attempt to start from
+ * @param time   time of the attempt to start from
+ * @param from   attempts before this time stop the walk
+ * @param to     attempts at or after this time are skipped
+ * @param count  the walk stops after this many attempts
+ * @return attempts walked through, oldest first
+ * @throws IOException if the file is not readable
+ */
+private List<Attempt> Walk(Key key, long offset, long time, long from, long to, int count) throws IOException {
+  List<Attempt> ret    = new ArrayList<>();
+  Window        window = new Window();
+  while (offset >= 0 && ret.size() < count) {
+    window.Seek(offset);
+    if (window.Next() >>> 1 != key.m_id_) {
+      throw new IOException("Attempt log is damaged at " + offset);
+    }
+    long back  = window.Next();
+    long dt    = window.Next();
+    int  score = (int) window.Next();
+    if (time < from) {
+      break;
+    }
+    if (time < to) {
+      ret.add(new Attempt(time, score));
+    }
+    offset = back == 0 ? - 1 : offset - back;
+    time  -= dt;
+  }
+  Collections.reverse(ret);
+  return ret;
+}
+
+/**
+ * Find the key of a user and topic
+ *
+ * @param userId user ID
+ * @param topic  the name of the topic
+ * @return the key, null if not defined
+ */
+private Key Find(String userId, String topic) {
+  Map<String, Key> topics = m_keys_.get(userId);
+  return topics == null ? null : topics.get(topic);
+}
+
+/**
+ * Define a key in memory
+ *
+ * @param userId user ID
+ * @param topic  the name of the topic
+ * @return the key
+ */
+private Key Define(String userId, String topic) {
+  Key key = new Key(m_ids_.size());
+  m_ids_.add(key);
+  m_keys_.computeIfAbsent(userId, k -> new HashMap<>())
+         .put(topic, key);
+  return key;
+}
+
+/**
+ * Append the definition of a key
+ *
+ * @param userId user ID
+ * @param topic  the name of the topic
+ * @return the key
+ * @throws IOException              if the file is not writable
+ * @throws IllegalArgumentException if the user ID or topic is too long
+ */
+private Key WriteKey(String userId, String topic) throws IOException, IllegalArgumentException {
+  byte[] user  = userId.getBytes(StandardCharsets.UTF_8);
+  byte[] title = topic.getBytes(StandardCharsets.UTF_8);
+  if (user.length > Short.MAX_VALUE || title.length > Short.MAX_VALUE) {
+    throw new IllegalArgumentException("Cannot log attempts of user " + userId + " on topic " + topic);
+  }
+  ByteBuffer record = ByteBuffer.allocate(10 + user.length + title.length);
+  PutVarint(record, (long) user.length << 1 | 1);
+  PutVarint(record, title.length);
+  record.put(user)
+        .put(title)
+        .flip();
+  int size = record.remaining();
+  WriteFully(m_channel_, record, m_end_);
+  m_end_ += size;
+  return Define(userId, topic);
+}
+
+/**
+ * Write all remaining bytes of a buffer at a position
+ *
+ * @param channel the file
+ * @param src     bytes to be written
+ * @param pos     position in the file
+ * @throws IOException if the file is not writable
+ */
+private static void WriteFully(FileChannel channel, ByteBuffer src, long pos) throws IOException {
+  while (src.hasRemaining()) {
+    pos += channel.write(src, pos);
+  }
+}
+
+/**
+ * Fill a buffer from a position
+ *
+ * @param channel the file
+ * @param dst     buffer to be filled, flipped for reading after
+ * @param pos     position in the file
+ * @throws IOException if the file ends before the buffer is filled
+ */
+private static void ReadFully(FileChannel channel, ByteBuffer dst, long pos) throws IOException {
+  long begin = pos;
+  while (dst.hasRemaining()) {
+    int n = channel.read(dst, pos);
+    if (n < 0) {
+      throw new IOException("Attempt log is truncated at " + pos + ", reading from " + begin);
+    }
+    pos += n;
+  }
+  dst.flip();
+}
+
+/**
+ * Put an unsigned varint, 7 bits a byte, lowest bits first
+ *
+ * @param dst destination
+ * @param val value, not negative
+ */
+private static void PutVarint(ByteBuffer dst, long val) {
+  while ((val & ~ 0x7fL) != 0) {
+    dst.put((byte) (val & 0x7f | 0x80));
+    val >>>= 7;
+  }
+  dst.put((byte) val);
+}
+
+/**
+ * Read an unsigned varint
+ *
+ * @param src    source
+ * @param cursor position in the source, advanced past the varint
+ * @return value, or -1 if the varint runs past the source or is too long
+ */
+private static long ReadVarint(ByteBuffer src, long[] cursor) {
+  long val   = 0;
+  int  shift = 0;
+  int  pos   = (int) cursor[0];
+  while (true) {
+    if (pos >= src.limit() || shift > 56) {
+      return - 1;
+    }
+    byte b = src.get(pos++);
+    val |= (long) (b & 0x7f) << shift;
+    if (b >= 0) {
+      cursor[0] = pos;
+      return val;
+    }
+    shift += 7;
+  }
+}
+
+}
@@ -0,0 +1,104 @@
+package UserManagement;
+
+import java.io.IOException;
+
+/**
+ * Batches concurrent commit requests into one commit.
+ * <p>
+ * A request is satisfied by a commit started after it was made. While a commit is running, requests made meanwhile
+ * wait for it to finish, then the first of them commits once on behalf of all. Every commit has its own result, which
+ * the requests it covers hold, so a later commit never overwrites the outcome a request waits for.
+ */
+class GroupCommit {
+
+/**
+ * The commit action
+ */
+interface Action {
+
+  /**
+   * Commit everything requested before the call
+   *
+   * @throws IOException if the commit fails
+   */
+  void Apply() throws IOException;
+}
+
+/**
+ * Result of a commit, shared by the requests it covers. Guarded by the group commit.
+ */
+private static final class Result {
+  private boolean     m_done_ = false;  // if the commit has finished
+  private IOException m_failure_;       // failure of the commit, null if succeeded
+}
+
+private final Action  m_action_;
+private       Result  m_next_    = new Result();  // result of the next commit to start, joined by new requests
+private       boolean m_running_ = false;         // if a commit is running
+
+/**
+ * Construct a group commit
+ *
+ * @param action the commit action
+ */
+GroupCommit(Action action) {
+  m_action_ = action;
+}
+
+/**
+ * Request a commit and wait until it is done, by this thread or another one
+ *
+ * @throws IOException if the commit covering the request fails
+ */
+void Commit() throws IOException {
+  Result result;
+  synchronized (this) {
+    result = m_next_;
+    while (m_running_ && ! result.m_done_) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for commit", e);
+      }
+    }
+    if (result.m_done_) {
+      if (result.m_failure_ != null) {
+        throw new IOException("Group commit failed", result.m_failure_);
+      }
+      return;
+    }
+    // Commit on behalf of every request joined so far, later requests wait for the next commit
+    m_running_ = true;
+    m_next_    = new Result();
+  }
+
+  boolean     ok      = false;
+  IOException failure = null;
+  try {
+    m_action_.Apply();
+    ok = true;
+  } catch (IOException e) {
+    failure = e;
+  } catch (RuntimeException | Error e) {
+    // Waiters fail with the cause, this thread rethrows it as is
+    failure = new IOException(e);
+    throw e;
+  } finally {
+    // Anything but a normal return fails the commit, so no waiter takes an aborted commit as done
+    if (! ok && failure == null) {
+      failure = new IOException("Group commit aborted");
+    }
+    synchronized (this) {
+      m_running_        = false;
+      result.m_done_    = true;
+      result.m_failure_ = failure;
+      notifyAll();
+    }
+  }
+  if (failure != null) {
+    throw failure;
+  }
+}
+
+}
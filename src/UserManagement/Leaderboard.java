@@ -0,0 +1,287 @@
+package UserManagement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Per-topic index of users ordered by their highest score.
+ * <p>
+ * The index is refreshed whenever a record of a registered user changes, so queries never scan all users.
+ * Every topic is guarded by its own lock.
+ * <p>
+ * Users are ranked by competition ranking: users tied on a score share a rank, and the next score is ranked after
+ * all of them. Ties are ordered by the time they reached the score. Counts of users on every score are kept in a
+ * Fenwick tree over the 0-100 score range, so the rank of a user and the score at a position are found in
+ * logarithmic time.
+ */
+public class Leaderboard {
+private static final int MAX_SCORE = 100;  // scores are checked to be within 0-100 by Users
+
+/**
+ * A ranked user of a topic
+ */
+public static final class Entry {
+  private final int   m_rank_;
+  private final Users m_user_;
+  private final int   m_score_;
+
+  private Entry(int rank, Users user, int score) {
+    m_rank_  = rank;
+    m_user_  = user;
+    m_score_ = score;
+  }
+
+  /**
+   * Get rank of the user, starting from 1
+   *
+   * @return rank
+   */
+  public int GetRank() {
+    return m_rank_;
+  }
+
+  /**
+   * Get the user
+   *
+   * @return user
+   */
+  public Users GetUser() {
+    return m_user_;
+  }
+
+  /**
+   * Get highest score of the user on the topic
+   *
+   * @return score
+   */
+  public int GetScore() {
+    return m_score_;
+  }
+}
+
+/**
+ * Users of a topic, grouped by highest score
+ */
+private static final class TopicBoard {
+  private final TreeMap<Integer, Set<Users>> m_scores_  = new TreeMap<>();          // highest score to users
+  private final Map<Users, Integer>          m_indexed_ = new HashMap<>();          // score every user is indexed under
+  private final int[]                        m_counts_  = new int[MAX_SCORE + 2];  // Fenwick tree of users per score, top score first
+
+  /**
+   * Add delta to count of users on a score
+   */
+  void Count(int score, int delta) {
+    for (int i = MAX_SCORE + 1 - score; i < m_counts_.length; i += i & - i) {
+      m_counts_[i] += delta;
+    }
+  }
+
+  /**
+   * Count users above a score
+   */
+  int CountAbove(int score) {
+    int count = 0;
+    for (int i = MAX_SCORE - score; i > 0; i -= i & - i) {
+      count += m_counts_[i];
+    }
+    return count;
+  }
+
+  /**
+   * Get score of the user at a position, the position must be within count of users
+   */
+  int ScoreAt(int pos) {
+    int i = 0;
+    for (int step = Integer.highestOneBit(m_counts_.length - 1); step > 0; step >>= 1) {
+      if (i + step < m_counts_.length && m_counts_[i + step] < pos) {
+        i   += step;
+        pos -= m_counts_[i];
+      }
+    }
+    return MAX_SCORE - i;
+  }
+}
+
+private final Map<String, TopicBoard> m_boards_ = new ConcurrentHashMap<>();     // topic to board
+private final Set<String>             m_topics_ = new ConcurrentSkipListSet<>();  // topics with any score
+
+/**
+ * Re-index a user on a topic from the user's current highest score.
+ * The current score is read under the lock of the topic, so refreshing after every change keeps the index right
+ * whatever order concurrent refreshes run in.
+ *
+ * @param user  user whose record changed
+ * @param topic topic of the record
+ */
+void Refresh(Users user, String topic) {
+  TopicBoard board = m_boards_.computeIfAbsent(topic, k -> new TopicBoard());
+  synchronized (board) {
+    Integer current = user.GetTopicSpecifiedHighestRecord(topic);
+    Integer indexed = board.m_indexed_.get(user);
+    if (current == null ? indexed == null : current.equals(indexed)) {
+      return;
+    }
+    if (indexed != null) {
+      Set<Users> users = board.m_scores_.get(indexed);
+      users.remove(user);
+      if (users.isEmpty()) {
+        board.m_scores_.remove(indexed);
+      }
+      board.m_indexed_.remove(user);
+      board.Count(indexed, - 1);
+    }
+    if (current != null) {
+      board.m_scores_.computeIfAbsent(current, k -> new LinkedHashSet<>())
+                     .add(user);
+      board.m_indexed_.put(user, current);
+      board.Count(current, 1);
+    }
+    if (board.m_indexed_.isEmpty()) {
+      m_topics_.remove(topic);
+    } else {
+      m_topics_.add(topic);
+    }
+  }
+}
+
+/**
+ * Get all topics any user has a score on, in alphabetical order
+ *
+ * @return an array of topics
+ */
+public String[] GetTopics() {
+  return m_topics_.toArray(new String[0]);
+}
+
+/**
+ * Get the top score of a topic
+ *
+ * @param topic the name of the topic
+ * @return the top score, or null if no user has a score on the topic
+ */
+public Integer GetTopScore(String topic) {
+  TopicBoard board = m_boards_.get(topic);
+  if (board == null) {
+    return null;
+  }
+  synchronized (board) {
+    return board.m_scores_.isEmpty() ? null : board.m_scores_.lastKey();
+  }
+}
+
+/**
+ * Get users tied for the top score of a topic
+ *
+ * @param topic the name of the topic
+ * @return users holding the top score, in the order they reached it, empty if no user has a score on the topic
+ */
+public List<Users> GetLeaders(String topic) {
+  TopicBoard board = m_boards_.get(topic);
+  if (board == null) {
+    return List.of();
+  }
+  synchronized (board) {
+    return board.m_scores_.isEmpty() ? List.of() : new ArrayList<>(board.m_scores_.lastEntry().getValue());
+  }
+}
+
+/**
+ * Get count of users ranked on a topic
+ *
+ * @param topic the name of the topic
+ * @return count of users having a score on the topic
+ */
+public int GetRankedCount(String topic) {
+  TopicBoard board = m_boards_.get(topic);
+  if (board == null) {
+    return 0;
+  }
+  synchronized (board) {
+    return board.m_indexed_.size();
+  }
+}
+
+/**
+ * Get rank of a user on a topic
+ *
+ * @param topic the name of the topic
+ * @param user  the user
+ * @return rank of the user starting from 1, or null if the user has no score on the topic
+ */
+public Integer GetRank(String topic, Users user) {
+  TopicBoard board = m_boards_.get(topic);
+  if (board == null) {
+    return null;
+  }
+  synchronized (board) {
+    Integer score = board.m_indexed_.get(user);
+    return score == null ? null : board.CountAbove(score) + 1;
+  }
+}
+
+/**
+ * Get the first `k' ranked users of a topic
+ *
+ * @param topic the name of the topic
+ * @param k     count of users
+ * @return ranked users, fewer than k if not enough users have a score on the topic
+ * @throws IllegalArgumentException if k is negative
+ */
+public List<Entry> GetTop(String topic, int k) throws IllegalArgumentException {
+  return GetPage(topic, 1, k);
+}
+
+/**
+ * Get ranked users of a topic at positions from `from' on, in order.
+ * <p>
+ * Positions count every user once, while ties share a rank, so the rank of an entry may be less than its position.
+ * Locating the first entry takes logarithmic time plus skipping the users before it on the same score.
+ *
+ * @param topic the name of the topic
+ * @param from  position of the first entry, starting from 1
+ * @param count count of entries
+ * @return ranked users, fewer than count if the page passes the last user
+ * @throws IllegalArgumentException if from is less than 1 or count is negative
+ */
+public List<Entry> GetPage(String topic, int from, int count) throws IllegalArgumentException {
+  if (from < 1 || count < 0) {
+    throw new IllegalArgumentException("Invalid page: from " + from + ", count " + count);
+  }
+  TopicBoard board = m_boards_.get(topic);
+  if (board == null) {
+    return List.of();
+  }
+  synchronized (board) {
+    int size = board.m_indexed_.size();
+    if (from > size || count == 0) {
+      return List.of();
+    }
+    List<Entry> page  = new ArrayList<>(Math.min(count, size - from + 1));
+    int         first = board.ScoreAt(from);
+    int         rank  = board.CountAbove(first) + 1;
+    int         skip  = from - rank;
+    for (Map.Entry<Integer, Set<Users>> e : board.m_scores_.headMap(first, true).descendingMap().entrySet()) {
+      for (Users user : e.getValue()) {
+        if (skip > 0) {
+          skip--;
+          continue;
+        }
+        page.add(new Entry(rank, user, e.getKey()));
+        if (page.size() == count) {
+          return page;
+        }
+      }
+      rank += e.getValue().size();
+    }
+    return page;
+  }
+}
+
+}
@@ -1,13 +1,24 @@
 package UserManagement;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Score records of a user, safe to be updated from multiple threads.
+ * <p>
+ * Topics are kept in a concurrent map and every topic is guarded by its own lock, so updates on different topics
+ * never block each other.
+ * <p>
+ * Scores are kept on heap unless the records are attached to a {@link ScoreStore}.
+ */
 public class ScoreRecords {
 
-private final Map<String, TopicScores> records;
+private final    Map<String, TopicScores> records;
+private volatile ScoreStore               store;   // off-heap store of the scores, null to keep them on heap
+private volatile String                   userId;  // owner of the records in the store
 
 public ScoreRecords() {
-  this.records = new HashMap<>();
+  this.records = new ConcurrentHashMap<>();
 }
 
 /**
@@ -17,9 +28,41 @@ public ScoreRecords() {
  * @param score the score
  */
 public void addScore(String topic, Integer score) {
-  records.putIfAbsent(topic, new TopicScores());
-  TopicScores ts = records.get(topic);
-  ts.addScore(score);
+  records.computeIfAbsent(topic, this::newTopicScores)
+         .addScore(score);
+}
+
+/**
+ * Create records of a new topic, in the store if attached to one
+ *
+ * @param topic the name of the topic
+ * @return empty score records
+ */
+private TopicScores newTopicScores(String topic) {
+  ScoreStore s = store;
+  return s == null ? new TopicScores() : s.Create(userId, topic);
+}
+
+/**
+ * Move the score records to a store. Records the store already holds for the user are taken in, and records on
+ * heap are copied into the store, replacing those of the same topic.
+ *
+ * @param store  the store
+ * @param userId owner of the records
+ */
+synchronized void attachStore(ScoreStore store, String userId) {
+  Map<String, TopicScores> stored = store.Load(userId);
+  for (Map.Entry<String, TopicScores> entry : records.entrySet()) {
+    TopicScores ts = stored.remove(entry.getKey());
+    if (ts == null) {
+      ts = store.Create(userId, entry.getKey());
+    }
+    ts.copyFrom(entry.getValue());
+    entry.setValue(ts);
+  }
+  records.putAll(stored);
+  this.userId = userId;
+  this.store  = store;
 }
 
 /**
@@ -41,6 +84,19 @@ public TopicScores getTopicScores(String topic) {
   return records.get(topic);
 }
 
+/**
+ * Remove score records for a specific topic
+ *
+ * @param topic the name of the topic
+ */
+void removeTopic(String topic) {
+  TopicScores ts = records.remove(topic);
+  ScoreStore  s  = store;
+  if (ts != null && s != null) {
+    s.Free(ts);
+  }
+}
+
 /**
  * Get the set of all topics that have a score record.
  *
@@ -51,15 +107,86 @@ public Set<String> keySet() {
 }
 
 /**
- * Inner class representing the score records for a topic
+ * Inner class representing the score records for a topic.
+ * Methods synchronize on the instance, hold its monitor to read several fields consistently.
+ * <p>
+ * Scores are kept as primitives: the recent scores in a fixed-size ring buffer and the highest score in an int,
+ * {@link #NO_SCORE} standing for a missing score. Updates never allocate. The int slots the scores are kept in lie in
+ * an array on heap, unless a subclass keeps them elsewhere, as a {@link ScoreStore} does.
  */
 public static class TopicScores {
-  private final List<Integer> recentScores;
-  private       Integer       highestScore;
+  /**
+   * Count of recent scores kept
+   */
+  public static final int RECENT_SCORES = 3;
+  /**
+   * Sentinel of a missing score, a score of this value is taken as missing
+   */
+  public static final int NO_SCORE = Integer.MIN_VALUE;
+
+  // Slots of the scores
+  static final int HEAD    = 0;                        // slot of the oldest recent score, relative to RECENT
+  static final int COUNT   = 1;                        // count of recent scores
+  static final int HIGHEST = 2;                        // highest score
+  static final int RECENT  = 3;                        // ring buffer of recent scores
+  static final int SLOTS   = RECENT + RECENT_SCORES;
+
+  private final int[] slots;  // slots on heap, null if kept by a subclass
 
   public TopicScores() {
-    this.recentScores = new LinkedList<>();
-    this.highestScore = null;
+    this(new int[SLOTS]);
+    slots[HIGHEST] = NO_SCORE;
+  }
+
+  /**
+   * Construct topic scores on given slots
+   *
+   * @param slots slots on heap, or null if a subclass overrides {@link #getSlot(int)} and {@link #setSlot(int, int)}
+   */
+  TopicScores(int[] slots) {
+    this.slots = slots;
+  }
+
+  /**
+   * Get value of a slot
+   *
+   * @param slot slot index
+   * @return value
+   */
+  int getSlot(int slot) {
+    return slots[slot];
+  }
+
+  /**
+   * Set value of a slot
+   *
+   * @param slot slot index
+   * @param val  value
+   */
+  void setSlot(int slot, int val) {
+    slots[slot] = val;
+  }
+
+  /**
+   * Reset to no score, as newly created
+   */
+  synchronized void clear() {
+    setSlot(HEAD, 0);
+    setSlot(COUNT, 0);
+    setSlot(HIGHEST, NO_SCORE);
+  }
+
+  /**
+   * Copy all scores of another topic scores
+   *
+   * @param other the topic scores to copy
+   */
+  synchronized void copyFrom(TopicScores other) {
+    synchronized (other) {
+      for (int i = 0; i < SLOTS; i++) {
+        setSlot(i, other.getSlot(i));
+      }
+    }
   }
 
   /**
@@ -68,31 +195,82 @@ public static class TopicScores {
    * @param score the score
    */
   public void addScore(Integer score) {
-    if (recentScores.size() == 3) {
-      recentScores.remove(0);
+    addScore(score == null ? NO_SCORE : score);
+  }
+
+  /**
+   * Add a score record, the oldest recent score is dropped if there are already {@link #RECENT_SCORES} ones
+   *
+   * @param score the score, or {@link #NO_SCORE}
+   */
+  public synchronized void addScore(int score) {
+    int head  = getSlot(HEAD);
+    int count = getSlot(COUNT);
+    if (count == RECENT_SCORES) {
+      setSlot(RECENT + head, score);
+      setSlot(HEAD, (head + 1) % RECENT_SCORES);
+    } else {
+      setSlot(RECENT + (head + count) % RECENT_SCORES, score);
+      setSlot(COUNT, count + 1);
     }
-    recentScores.add(score);
-    if (highestScore == null || score > highestScore) {
-      highestScore = score;
+    int highest = getSlot(HIGHEST);
+    if (score != NO_SCORE && (highest == NO_SCORE || score > highest)) {
+      setSlot(HIGHEST, score);
     }
   }
 
+  /**
+   * Get count of recent scores
+   *
+   * @return count of recent scores, at most {@link #RECENT_SCORES}
+   */
+  public synchronized int getRecentCount() {
+    return getSlot(COUNT);
+  }
+
+  /**
+   * Get `i' recent score, from the oldest
+   *
+   * @param i index of the recent score
+   * @return the score, or {@link #NO_SCORE} if missing
+   * @throws IndexOutOfBoundsException if the i is out of bound
+   */
+  public synchronized int getRecentScore(int i) throws IndexOutOfBoundsException {
+    Objects.checkIndex(i, getSlot(COUNT));
+    return getSlot(RECENT + (getSlot(HEAD) + i) % RECENT_SCORES);
+  }
+
   /**
    * Get the recent scores
    *
-   * @return an unmodifiable list of recent scores
+   * @return an unmodifiable copy of recent scores, from the oldest, missing scores as null
    */
-  public List<Integer> getRecentScores() {
-    return Collections.unmodifiableList(recentScores);
+  public synchronized List<Integer> getRecentScores() {
+    Integer[] scores = new Integer[getSlot(COUNT)];
+    for (int i = 0; i < scores.length; i++) {
+      int score = getRecentScore(i);
+      scores[i] = score == NO_SCORE ? null : score;
+    }
+    return Collections.unmodifiableList(Arrays.asList(scores));
   }
 
   /**
    * Get the highest score
    *
-   * @return the highest score
+   * @return the highest score, or null if missing
+   */
+  public synchronized Integer getHighestScore() {
+    int highest = getSlot(HIGHEST);
+    return highest == NO_SCORE ? null : highest;
+  }
+
+  /**
+   * Get the highest score without boxing
+   *
+   * @return the highest score, or {@link #NO_SCORE} if missing
    */
-  public Integer getHighestScore() {
-    return highestScore;
+  public synchronized int getHighestScoreValue() {
+    return getSlot(HIGHEST);
   }
 
   /**
@@ -100,8 +278,8 @@ public static class TopicScores {
    *
    * @param score the highest score to set
    */
-  public void setHighestScore(Integer score) {
-    highestScore = score;
+  public synchronized void setHighestScore(Integer score) {
+    setSlot(HIGHEST, score == null ? NO_SCORE : score);
   }
 }
 
@@ -0,0 +1,341 @@
+package UserManagement;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Off-heap store of score records, keeps recent and highest scores of every user and topic outside of the heap.
+ * <p>
+ * The store is either allocated in direct memory, or mapped from a file so it survives restarts without parsing the
+ * score file. Records are appended in chunks which are never moved, a record of a user and topic is:
+ * <pre>
+ *   short  length of user ID        short  length of topic
+ *   int    flags                    bytes  user ID and topic, in UTF-8, padded to 4 bytes
+ *   int[]  slots of {@link ScoreRecords.TopicScores}
+ * </pre>
+ * A removed record is kept and reused when the topic is recorded again. The file is not locked, a store must not be
+ * opened twice.
+ */
+public class ScoreStore implements Closeable {
+private static final int MAGIC       = 0x53435253;  // "SCRS"
+private static final int VERSION     = 1;
+private static final int HEADER_SIZE = 16;          // magic, version, end of records
+private static final int END         = 8;           // offset of end of records in the header
+private static final int CHUNK_SIZE  = 1 << 20;
+private static final int LIVE        = 1;           // flag of a record in use
+private static final int SLOTS_SIZE  = ScoreRecords.TopicScores.SLOTS * Integer.BYTES;
+
+/**
+ * Score records of a topic kept in the store
+ */
+private static final class StoredTopicScores extends ScoreRecords.TopicScores {
+  private final ByteBuffer m_chunk_;  // chunk holding the record
+  private final int        m_pos_;    // position of the record in the chunk
+
+  StoredTopicScores(ByteBuffer chunk, int pos) {
+    super(null);
+    m_chunk_ = chunk;
+    m_pos_   = pos;
+  }
+
+  @Override
+  int getSlot(int slot) {
+    return m_chunk_.getInt(SlotsPos() + slot * Integer.BYTES);
+  }
+
+  @Override
+  void setSlot(int slot, int val) {
+    m_chunk_.putInt(SlotsPos() + slot * Integer.BYTES, val);
+  }
+
+  private int SlotsPos() {
+    return m_pos_ + KeySize(m_chunk_.getShort(m_pos_), m_chunk_.getShort(m_pos_ + 2));
+  }
+
+  private String Topic() {
+    int userLen = m_chunk_.getShort(m_pos_);
+    return ReadString(m_chunk_, m_pos_ + 8 + userLen, m_chunk_.getShort(m_pos_ + 2));
+  }
+
+  private boolean IsLive() {
+    return (m_chunk_.getInt(m_pos_ + 4) & LIVE) != 0;
+  }
+
+  private void SetLive(boolean live) {
+    m_chunk_.putInt(m_pos_ + 4, live ? LIVE : 0);
+  }
+}
+
+private final FileChannel                          m_channel_;                      // backing file, null if in memory
+private final List<ByteBuffer>                     m_chunks_  = new ArrayList<>();  // chunks of records, in order
+private final Map<String, List<StoredTopicScores>> m_records_ = new HashMap<>();    // records by user ID
+private       long                                 m_end_;                          // end of records
+
+private ScoreStore(FileChannel channel) {
+  m_channel_ = channel;
+}
+
+/**
+ * Allocate an empty store in direct memory
+ *
+ * @return the store
+ */
+public static ScoreStore Allocate() {
+  ScoreStore store = new ScoreStore(null);
+  store.Init();
+  return store;
+}
+
+/**
+ * Open a store mapped from a file, the file is created if not exists
+ *
+ * @param fp store file
+ * @return the store
+ * @throws IOException if the file is not accessible or not a store
+ */
+public static ScoreStore Open(String fp) throws IOException {
+  FileChannel channel = FileChannel.open(Path.of(fp), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                         StandardOpenOption.WRITE);
+  ScoreStore store = new ScoreStore(channel);
+  try {
+    if (channel.size() == 0) {
+      store.Init();
+    } else {
+      store.Scan(fp);
+    }
+  } catch (IOException | RuntimeException e) {
+    channel.close();
+    throw e;
+  }
+  return store;
+}
+
+/**
+ * Write the header of an empty store
+ */
+private void Init() {
+  ByteBuffer header = Chunk(0);
+  header.putInt(0, MAGIC);
+  header.putInt(4, VERSION);
+  SetEnd(HEADER_SIZE);
+}
+
+/**
+ * Index records of a store file. A torn record at the end is dropped with the records after it.
+ *
+ * @param fp store file, for error messages
+ * @throws IOException if the file is not a store
+ */
+private void Scan(String fp) throws IOException {
+  ByteBuffer header = Chunk(0);
+  if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+    throw new IOException("Not a score store: " + fp);
+  }
+  long end = header.getLong(END);
+  long off = HEADER_SIZE;
+  while (off < end) {
+    ByteBuffer chunk   = Chunk((int) (off / CHUNK_SIZE));
+    int        pos     = (int) (off % CHUNK_SIZE);
+    int        userLen = CHUNK_SIZE - pos < 4 ? 0 : chunk.getShort(pos);
+    if (userLen == 0) {
+      // The rest of the chunk is not used
+      off += CHUNK_SIZE - pos;
+      continue;
+    }
+    int topicLen = chunk.getShort(pos + 2);
+    int size     = userLen < 0 || topicLen < 0 ? - 1 : KeySize(userLen, topicLen) + SLOTS_SIZE;
+    if (size < 0 || pos + size > CHUNK_SIZE || off + size > end) {
+      Logger.getLogger("global").warning("Score store is damaged at " + off + ": " + fp + ". Dropping records after it.");
+      break;
+    }
+    Index(ReadString(chunk, pos + 8, userLen), new StoredTopicScores(chunk, pos));
+    off += size;
+  }
+  SetEnd(Math.min(off, end));
+}
+
+/**
+ * Check if the store holds no records, neither in use nor removed
+ *
+ * @return true if empty
+ */
+public synchronized boolean IsEmpty() {
+  return m_end_ == HEADER_SIZE;
+}
+
+/**
+ * Get records of a user in use
+ *
+ * @param userId user ID
+ * @return a map of topics and their score records
+ */
+synchronized Map<String, ScoreRecords.TopicScores> Load(String userId) {
+  Map<String, ScoreRecords.TopicScores> records = new HashMap<>();
+  for (StoredTopicScores ts : m_records_.getOrDefault(userId, List.of())) {
+    if (ts.IsLive()) {
+      records.put(ts.Topic(), ts);
+    }
+  }
+  return records;
+}
+
+/**
+ * Create empty records of a user on a topic, a removed record of the topic is reused if any
+ *
+ * @param userId user ID
+ * @param topic  the name of the topic
+ * @return empty score records
+ * @throws IllegalArgumentException if the user ID is empty, or the user ID or topic is too long
+ */
+synchronized ScoreRecords.TopicScores Create(String userId, String topic) throws IllegalArgumentException {
+  for (StoredTopicScores ts : m_records_.getOrDefault(userId, List.of())) {
+    if (!ts.IsLive() && ts.Topic().equals(topic)) {
+      ts.clear();
+      ts.SetLive(true);
+      return ts;
+    }
+  }
+
+  byte[] user  = userId.getBytes(StandardCharsets.UTF_8);
+  byte[] title = topic.getBytes(StandardCharsets.UTF_8);
+  if (user.length == 0 || user.length > Short.MAX_VALUE || title.length > Short.MAX_VALUE) {
+    throw new IllegalArgumentException("Cannot store records of user " + userId + " on topic " + topic);
+  }
+  int  size = KeySize(user.length, title.length) + SLOTS_SIZE;
+  long off  = m_end_;
+  if (off % CHUNK_SIZE + size > CHUNK_SIZE) {
+    off += CHUNK_SIZE - off % CHUNK_SIZE;
+  }
+  ByteBuffer chunk = Chunk((int) (off / CHUNK_SIZE));
+  int        pos   = (int) (off % CHUNK_SIZE);
+  chunk.putShort(pos, (short) user.length);
+  chunk.putShort(pos + 2, (short) title.length);
+  chunk.put(pos + 8, user);
+  chunk.put(pos + 8 + user.length, title);
+  StoredTopicScores ts = new StoredTopicScores(chunk, pos);
+  ts.clear();
+  ts.SetLive(true);
+
+  // Publish the record only after it is completely written
+  SetEnd(off + size);
+  Index(userId, ts);
+  return ts;
+}
+
+/**
+ * Mark records as removed, the records must have been created by this store
+ *
+ * @param ts score records
+ */
+synchronized void Free(ScoreRecords.TopicScores ts) {
+  ((StoredTopicScores) ts).SetLive(false);
+}
+
+/**
+ * Write changes of a file-backed store to the file
+ *
+ * @return self, for chain-call
+ */
+public synchronized ScoreStore Force() {
+  if (m_channel_ != null) {
+    for (ByteBuffer chunk : m_chunks_) {
+      ((MappedByteBuffer) chunk).force();
+    }
+  }
+  return this;
+}
+
+/**
+ * Write changes to the file and close it. Mapped chunks stay valid until collected, the store and its records
+ * must not be used after closing.
+ *
+ * @throws IOException if an I/O error occurs
+ */
+@Override
+public synchronized void close() throws IOException {
+  if (m_channel_ != null) {
+    Force();
+    m_channel_.close();
+  }
+}
+
+/**
+ * Get `i' chunk, chunks before it are created if not exist
+ *
+ * @param i chunk index
+ * @return the chunk
+ * @throws java.io.UncheckedIOException if the chunk cannot be mapped
+ */
+private ByteBuffer Chunk(int i) {
+  while (m_chunks_.size() <= i) {
+    if (m_channel_ == null) {
+      m_chunks_.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+    } else {
+      try {
+        m_chunks_.add(m_channel_.map(FileChannel.MapMode.READ_WRITE, (long) m_chunks_.size() * CHUNK_SIZE, CHUNK_SIZE));
+      } catch (IOException e) {
+        throw new java.io.UncheckedIOException(e);
+      }
+    }
+  }
+  return m_chunks_.get(i);
+}
+
+/**
+ * Set end of records
+ *
+ * @param end end of records
+ */
+private void SetEnd(long end) {
+  m_end_ = end;
+  Chunk(0).putLong(END, end);
+}
+
+/**
+ * Add a record to the index of its user
+ *
+ * @param userId user ID
+ * @param ts     the record
+ */
+private void Index(String userId, StoredTopicScores ts) {
+  m_records_.computeIfAbsent(userId, k -> new ArrayList<>(1))
+            .add(ts);
+}
+
+/**
+ * Get size of the part of a record before its slots
+ *
+ * @param userLen  length of user ID in bytes
+ * @param topicLen length of topic in bytes
+ * @return size in bytes, aligned to 4 bytes
+ */
+private static int KeySize(int userLen, int topicLen) {
+  return (8 + userLen + topicLen + 3) & ~ 3;
+}
+
+/**
+ * Read a UTF-8 string from a chunk
+ *
+ * @param chunk the chunk
+ * @param pos   position of the string
+ * @param len   length in bytes
+ * @return the string
+ */
+private static String ReadString(ByteBuffer chunk, int pos, int len) {
+  byte[] bytes = new byte[len];
+  chunk.get(pos, bytes);
+  return new String(bytes, StandardCharsets.UTF_8);
+}
+
+}
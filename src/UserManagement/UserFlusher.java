@@ -0,0 +1,289 @@
+package UserManagement;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind flusher of changed users and records.
+ * <p>
+ * Changes are marked dirty and written later by a background thread, in batches. A record changed many times
+ * before a flush is written once, while every attempt is kept. A batch is flushed after an interval since its first
+ * change, or as soon as it holds enough dirty entries. Every change gets the future of the batch it falls in,
+ * completed once the batch is written.
+ */
+class UserFlusher implements Closeable {
+
+/**
+ * Writes a batch of changes
+ */
+interface BatchHook {
+
+  /**
+   * Write a batch, new users before records and records before attempts
+   *
+   * @param users    newly registered users, in registration order
+   * @param records  changed topics of every user
+   * @param attempts attempts to be logged, in order, taken from the queue once logged so those left are retried
+   * @throws IOException if the changes cannot be written
+   */
+  void Apply(List<Users> users, Map<Users, Set<String>> records, Queue<Attempt> attempts) throws IOException;
+}
+
+/**
+ * An attempt of a user on a topic, waiting to be logged
+ */
+static final class Attempt {
+  private final Users  m_user_;
+  private final String m_topic_;
+  private final long   m_time_;
+  private final int    m_score_;
+
+  private Attempt(Users user, String topic, long time, int score) {
+    m_user_  = user;
+    m_topic_ = topic;
+    m_time_  = time;
+    m_score_ = score;
+  }
+
+  Users GetUser() {
+    return m_user_;
+  }
+
+  String GetTopic() {
+    return m_topic_;
+  }
+
+  long GetTime() {
+    return m_time_;
+  }
+
+  int GetScore() {
+    return m_score_;
+  }
+}
+
+private final BatchHook                m_hook_;
+private final long                     m_interval_;                               // millis from first change to flush
+private final int                      m_threshold_;                              // dirty entries to flush at once
+private final ScheduledExecutorService m_executor_;
+private       Set<Users>               m_users_     = new LinkedHashSet<>();      // dirty new users
+private       Map<Users, Set<String>>  m_records_   = new LinkedHashMap<>();      // dirty topics of users
+private       Deque<Attempt>           m_attempts_  = new ArrayDeque<>();         // attempts to be logged
+private       int                      m_dirty_     = 0;                          // dirty entries
+private       CompletableFuture<Void>  m_pending_   = new CompletableFuture<>();  // completed when batch is written
+private       boolean                  m_scheduled_ = false;                      // if a flush is scheduled
+private       boolean                  m_closed_    = false;
+
+/**
+ * Constructs a flusher and starts its thread
+ *
+ * @param hook      writes batches
+ * @param interval  milliseconds from the first change of a batch to its flush
+ * @param threshold dirty entries to flush a batch at once, flushes on every change if not positive
+ */
+UserFlusher(BatchHook hook, long interval, int threshold) {
+  m_hook_      = hook;
+  m_interval_  = interval;
+  m_threshold_ = Math.max(threshold, 1);
+  m_executor_  = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "user-flusher");
+    t.setDaemon(true);
+    return t;
+  });
+}
+
+/**
+ * Mark a newly registered user dirty
+ *
+ * @param user the user
+ * @return future completed when the user is written
+ * @throws IllegalStateException if the flusher is closed
+ */
+synchronized CompletableFuture<Void> MarkUser(Users user) throws IllegalStateException {
+  CheckOpen();
+  if (m_users_.add(user)) {
+    Dirty(true);
+  }
+  return m_pending_;
+}
+
+/**
+ * Mark a record dirty
+ *
+ * @param user  user whose record changed
+ * @param topic topic of the record
+ * @return future completed when the record is written
+ * @throws IllegalStateException if the flusher is closed
+ */
+synchronized CompletableFuture<Void> MarkRecord(Users user, String topic) throws IllegalStateException {
+  CheckOpen();
+  if (m_records_.computeIfAbsent(user, k -> new LinkedHashSet<>())
+                .add(topic)) {
+    Dirty(true);
+  }
+  return m_pending_;
+}
+
+/**
+ * Mark a record dirty along with an attempt on it to be logged
+ *
+ * @param user  user who made the attempt
+ * @param topic topic of the attempt
+ * @param time  milliseconds since the epoch
+ * @param score score of the attempt
+ * @return future completed when the record and the attempt are written
+ * @throws IllegalStateException if the flusher is closed
+ */
+synchronized CompletableFuture<Void> MarkAttempt(Users user, String topic, long time, int score)
+    throws IllegalStateException {
+  MarkRecord(user, topic);
+  m_attempts_.add(new Attempt(user, topic, time, score));
+  Dirty(true);
+  return m_pending_;
+}
+
+/**
+ * Flush dirty changes now
+ *
+ * @return future completed when changes marked so far are written
+ */
+synchronized CompletableFuture<Void> Flush() {
+  if (m_dirty_ == 0) {
+    return CompletableFuture.completedFuture(null);
+  }
+  if (!m_closed_) {
+    m_executor_.execute(this::Run);
+  }
+  return m_pending_;
+}
+
+/**
+ * Stop taking changes, write all dirty changes and wait for them, then stop the thread.
+ * Changes left dirty by a failed write stay unwritten, the caller has to save them otherwise.
+ *
+ * @throws IOException if the changes cannot be written
+ */
+@Override
+public void close() throws IOException {
+  synchronized (this) {
+    if (m_closed_) {
+      return;
+    }
+    m_closed_ = true;
+  }
+  // The final run is queued behind a batch being written, so it also takes changes that batch fails to write
+  Future<CompletableFuture<Void>> last = m_executor_.submit((Callable<CompletableFuture<Void>>) this::Run);
+  m_executor_.shutdown();
+  try {
+    last.get()
+        .get();
+  } catch (ExecutionException e) {
+    throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+  } catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+    throw new IOException("Interrupted while flushing", e);
+  }
+}
+
+/**
+ * Count a new dirty entry and schedule a flush
+ *
+ * @param eager if the batch is flushed at once when reaching the threshold
+ */
+private void Dirty(boolean eager) {
+  m_dirty_++;
+  if (m_closed_) {
+    return;
+  }
+  if (eager && m_dirty_ == m_threshold_) {
+    m_executor_.execute(this::Run);
+  } else if (!m_scheduled_) {
+    m_executor_.schedule(this::Run, m_interval_, TimeUnit.MILLISECONDS);
+  }
+  m_scheduled_ = true;
+}
+
+/**
+ * Take the dirty batch and write it, on the flusher thread
+ *
+ * @return future of the batch, already completed if nothing is dirty
+ */
+private CompletableFuture<Void> Run() {
+  Set<Users>              users;
+  Map<Users, Set<String>> records;
+  Deque<Attempt>          attempts;
+  CompletableFuture<Void> done;
+  synchronized (this) {
+    if (m_dirty_ == 0) {
+      return CompletableFuture.completedFuture(null);
+    }
+    users        = m_users_;
+    records      = m_records_;
+    attempts     = m_attempts_;
+    done         = m_pending_;
+    m_users_     = new LinkedHashSet<>();
+    m_records_   = new LinkedHashMap<>();
+    m_attempts_  = new ArrayDeque<>();
+    m_dirty_     = 0;
+    m_pending_   = new CompletableFuture<>();
+    m_scheduled_ = false;
+  }
+  try {
+    m_hook_.Apply(new ArrayList<>(users), records, attempts);
+    done.complete(null);
+  } catch (IOException | RuntimeException e) {
+    // Keep the changes dirty to retry after an interval
+    synchronized (this) {
+      for (Users user : users) {
+        if (m_users_.add(user)) {
+          Dirty(false);
+        }
+      }
+      for (Map.Entry<Users, Set<String>> entry : records.entrySet()) {
+        for (String topic : entry.getValue()) {
+          if (m_records_.computeIfAbsent(entry.getKey(), k -> new LinkedHashSet<>())
+                        .add(topic)) {
+            Dirty(false);
+          }
+        }
+      }
+      // Attempts not logged yet go before those marked since, keeping their order
+      for (int i = 0; i < attempts.size(); i++) {
+        Dirty(false);
+      }
+      attempts.addAll(m_attempts_);
+      m_attempts_ = attempts;
+    }
+    done.completeExceptionally(e);
+  }
+  return done;
+}
+
+/**
+ * Check the flusher is not closed
+ *
+ * @throws IllegalStateException if the flusher is closed
+ */
+private void CheckOpen() throws IllegalStateException {
+  if (m_closed_) {
+    throw new IllegalStateException("Flusher is closed");
+  }
+}
+
+}
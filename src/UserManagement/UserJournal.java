@@ -0,0 +1,197 @@
+package UserManagement;
+
+import CsvUtils.CsvReader;
+import CsvUtils.CsvWriter;
+import CsvUtils.Exceptions;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only journal of changes made after the last account and score snapshot.
+ * <p>
+ * Every event is a csv row: the kind of the event followed by the snapshot row it replaces, so replaying an event
+ * twice has the same effect as replaying it once.
+ */
+class UserJournal implements Closeable {
+public static final String USER_EVENT  = "user";
+public static final String SCORE_EVENT = "score";
+
+private final Path                m_path_;
+private       FileOutputStream    m_out_;        // stream of the journal file, null if not opened
+private       CsvWriter.RowWriter m_writer_;
+private       long                m_events_ = 0;
+
+/**
+ * Constructs a journal, the file is created on the first event.
+ *
+ * @param path journal file
+ */
+UserJournal(Path path) {
+  m_path_ = path;
+}
+
+/**
+ * Replay all events in the journal file, in order.
+ * An event is only replayed once its return is read, so a torn event at the end of the file is never applied.
+ *
+ * @param hook applied on every event
+ * @return self, for chain-call
+ * @throws IOException                       if the journal file is not readable
+ * @throws Exceptions.IllegalSyntaxException if an event is torn or damaged, events before it have been replayed
+ */
+UserJournal Replay(CsvReader.RowHook hook) throws IOException, Exceptions.IllegalSyntaxException {
+  if (! Files.exists(m_path_)) {
+    return this;
+  }
+  boolean terminated = EndsWithReturn();
+  try (CsvReader.RowIterator it = CsvReader.IterateRows(m_path_)) {
+    // A row is held until the next row is read, which proves its return has been written
+    String[] held = null;
+    while (true) {
+      String[] row;
+      try {
+        row = it.hasNext() ? it.next() : null;
+      } catch (Exceptions.IllegalSyntaxException e) {
+        if (held != null) {
+          Apply(hook, held);
+        }
+        throw e;
+      }
+      if (row == null) {
+        break;
+      }
+      if (held != null) {
+        Apply(hook, held);
+      }
+      held = row;
+    }
+    if (held != null) {
+      if (! terminated) {
+        throw new Exceptions.IllegalSyntaxException("Last event has no return: " + String.join(",", held));
+      }
+      Apply(hook, held);
+    }
+  } catch (UncheckedIOException e) {
+    throw e.getCause();
+  }
+  return this;
+}
+
+/**
+ * Apply the hook on a replayed event and count it.
+ *
+ * @param hook hook to be applied
+ * @param row  the event
+ */
+private void Apply(CsvReader.RowHook hook, String[] row) {
+  hook.Apply(row);
+  m_events_++;
+}
+
+/**
+ * Check if the journal file ends with a return, that is its last event is completely written.
+ *
+ * @return true if the last byte is a return or the file is empty
+ * @throws IOException if the journal file is not readable
+ */
+private boolean EndsWithReturn() throws IOException {
+  try (FileChannel channel = FileChannel.open(m_path_, StandardOpenOption.READ)) {
+    long size = channel.size();
+    if (size == 0) {
+      return true;
+    }
+    ByteBuffer last = ByteBuffer.allocate(1);
+    if (channel.read(last, size - 1) < 1) {
+      return false;
+    }
+    byte b = last.get(0);
+    return b == '\n' || b == '\r';
+  }
+}
+
+/**
+ * Append an event, flush it to the journal file and sync it to the disk.
+ *
+ * @param kind kind of the event
+ * @param row  snapshot row of the event
+ * @return self, for chain-call
+ * @throws IOException if the journal file is not writable
+ */
+UserJournal Append(String kind, String[] row) throws IOException {
+  return Write(kind, row).Flush();
+}
+
+/**
+ * Append an event without flushing, events are kept in the buffer until {@link #Flush()}.
+ *
+ * @param kind kind of the event
+ * @param row  snapshot row of the event
+ * @return self, for chain-call
+ * @throws IOException if the journal file is not writable
+ */
+UserJournal Write(String kind, String[] row) throws IOException {
+  if (m_writer_ == null) {
+    m_out_    = new FileOutputStream(m_path_.toFile(), true);
+    m_writer_ = CsvWriter.OpenRowWriter(m_out_);
+  }
+  String[] line = new String[row.length + 1];
+  line[0] = kind;
+  System.arraycopy(row, 0, line, 1, row.length);
+  m_writer_.WriteRow(line);
+  m_events_++;
+  return this;
+}
+
+/**
+ * Flush appended events to the journal file and sync it to the disk.
+ *
+ * @return self, for chain-call
+ * @throws IOException if the journal file is not writable
+ */
+UserJournal Flush() throws IOException {
+  if (m_writer_ != null) {
+    m_writer_.flush();
+    m_out_.getFD().sync();
+  }
+  return this;
+}
+
+/**
+ * Get count of events since the journal was last cleared.
+ *
+ * @return events
+ */
+long GetEvents() {
+  return m_events_;
+}
+
+/**
+ * Drop all events, after they have been saved into a snapshot.
+ *
+ * @return self, for chain-call
+ * @throws IOException if the journal file is not writable
+ */
+UserJournal Clear() throws IOException {
+  close();
+  Files.deleteIfExists(m_path_);
+  m_events_ = 0;
+  return this;
+}
+
+@Override
+public void close() throws IOException {
+  if (m_writer_ != null) {
+    m_writer_.close();
+    m_writer_ = null;
+    m_out_    = null;
+  }
+}
+}
@@ -1,25 +1,96 @@
 package UserManagement;
 
-import CsvUtils.CsvReader;
+import CsvUtils.CsvCodec;
+import CsvUtils.CsvRowIndex;
+import CsvUtils.CsvSchema;
 import CsvUtils.CsvWriter;
 import CsvUtils.Table;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
  * Manages user accounts and score records.
+ * <p>
+ * Registrations, logins and score updates may come from multiple threads. Users are kept in a concurrent map and
+ * every topic of a user has its own lock, so they do not contend on a global lock. Only writes to the files are
+ * serialized.
  */
 public class UserManager {
+public static final long DEFAULT_COMPACTION_THRESHOLD = 1000;
+public static final long DEFAULT_FLUSH_INTERVAL       = 1000;  // milliseconds
+public static final int  DEFAULT_FLUSH_THRESHOLD      = 100;
 
-private final Set<Users> m_users_ = new HashSet<>();
+// Columns of account info rows
+private static final int ACCOUNT_ID     = 0;
+private static final int ACCOUNT_NAME   = 1;
+private static final int ACCOUNT_PASSWD = 2;
+
+// Columns of score info rows
+private static final int SCORE_USER    = 0;
+private static final int SCORE_TOPIC   = 1;
+private static final int SCORE_RECENT  = 2;  // recent scores take RECENT_SCORES columns from here
+private static final int SCORE_HIGHEST = 5;
+private static final int RECENT_SCORES = 3;
+
+private static final CsvCodec<Users> ACCOUNT_CODEC = CsvCodec.Compile(
+    new CsvSchema().AddColumn("id", CsvSchema.Type.STRING, false)
+                   .AddColumn("name", CsvSchema.Type.STRING, false)
+                   .AddColumn("passwd", CsvSchema.Type.STRING, false),
+    UserManager::DecodeAccount,
+    UserManager::EncodeAccount);
+
+private static final CsvCodec<ScoreRow> SCORE_CODEC = CsvCodec.Compile(
+    new CsvSchema().AddColumn("userId", CsvSchema.Type.STRING, false)
+                   .AddColumn("topic", CsvSchema.Type.STRING, false)
+                   .AddColumn("score1", CsvSchema.Type.INT, true)
+                   .AddColumn("score2", CsvSchema.Type.INT, true)
+                   .AddColumn("score3", CsvSchema.Type.INT, true)
+                   .AddColumn("highest", CsvSchema.Type.INT, true),
+    UserManager::DecodeScore,
+    UserManager::EncodeScore);
+
+/**
+ * A score info row, records of a user on a topic
+ */
+private static final class ScoreRow {
+  private final String    m_userId_;
+  private final String    m_topic_;
+  private final Integer[] m_recent_;   // recent scores, oldest first
+  private final Integer   m_highest_;  // highest score, null if not recorded
+
+  private ScoreRow(String userId, String topic, Integer[] recent, Integer highest) {
+    m_userId_  = userId;
+    m_topic_   = topic;
+    m_recent_  = recent;
+    m_highest_ = highest;
+  }
+}
+
+private final    Map<String, Users> m_users_               = new ConcurrentHashMap<>();           // users by ID
+private final    Set<Users>         m_usersView_           = new UsersView();                     // view of users
+private final    Object             m_persistLock_         = new Object();                        // guards files
+private final    Leaderboard        m_leaderboard_         = new Leaderboard();                   // users by score
+private volatile ScoreStore         m_store_;                                                     // off-heap scores, null if on heap
+private volatile AttemptLog         m_attempts_;                                                  // history of attempts, if any
+private volatile boolean            m_lazyScores_          = false;                               // if scores are loaded on access
+private volatile CsvRowIndex        m_scoreIndex_;                                                // scores not all loaded, if any
+private          String             m_infofp_;                                                    // account file loaded from
+private          String             m_scorefp_;                                                   // score file loaded from
+private          UserJournal        m_journal_;                                                   // changes since last snapshot
+private volatile UserFlusher        m_flusher_;                                                   // writes changes behind, if any
+private final    GroupCommit        m_compaction_          = new GroupCommit(this::Compact);      // batches compactions
+private final    GroupCommit        m_journalSync_         = new GroupCommit(this::SyncJournal);  // batches journal syncs
+private volatile long               m_compactionThreshold_ = DEFAULT_COMPACTION_THRESHOLD;        // events to trigger compaction
 
 /**
  * Load User Account and Score information.
+ * If a score store holding records is in use, scores are taken from the store and the score file is not parsed.
+ * If scores are loaded lazily, the score file is only indexed, see {@link #SetLazyScores(boolean)}.
  *
  * @param infofp  account information file
  * @param scorefp score record information file
@@ -27,33 +98,508 @@ private final Set<Users> m_users_ = new HashSet<>();
  * @throws IOException if file is not readable
  */
 public UserManager LoadUserInfo(String infofp, String scorefp) throws IOException {
+  ScoreStore store = m_store_;
+  boolean    warm  = store != null && !store.IsEmpty();
+
   // Load user information
   File infoFile = new File(infofp);
   if (!infoFile.exists() || infoFile.isDirectory()) {
     throw new FileNotFoundException("User info file not found: " + infofp);
   }
 
-  String content = new String(Files.readAllBytes(Paths.get(infofp)), StandardCharsets.UTF_8);
-  Table csv = CsvReader.ConstructTableFromCSV(content);
-  LoadAccountInfoFromTable(csv);
-
-  // Load score information
   File scoreFile = new File(scorefp);
   if (!scoreFile.exists() || scoreFile.isDirectory()) {
     throw new FileNotFoundException("Score file not found: " + scorefp);
   }
 
-  content = new String(Files.readAllBytes(Paths.get(scorefp)), StandardCharsets.UTF_8);
-  Table scoreTable = CsvReader.ConstructTableFromCSV(content);
-  LoadScoreInfoFromTable(scoreTable);
+  // Index score information before users, so every user is registered with a loader of its records
+  CsvRowIndex index = !warm && m_lazyScores_ ? CsvRowIndex.Build(scoreFile.toPath()) : null;
+
+  ACCOUNT_CODEC.ForEachRecord(infoFile.toPath(), user -> LoadAccount(user, index));
+
+  // Load score information, unless the scores are already in the store or loaded on access
+  if (index != null) {
+    m_scoreIndex_ = index;
+  } else if (!warm) {
+    SCORE_CODEC.ForEachRecord(scoreFile.toPath(), this::LoadScore);
+  }
+
+  synchronized (m_persistLock_) {
+    m_infofp_  = infofp;
+    m_scorefp_ = scorefp;
+  }
 
   System.out.println("Total users loaded: " + m_users_.size());
 
   return this;
 }
 
+/**
+ * Load User Account and Score information, then replay changes recorded in the journal.
+ * Later changes are appended to the journal instead of rewriting the snapshot.
+ *
+ * @param infofp    account information file
+ * @param scorefp   score record information file
+ * @param journalfp journal file, created on the first change if not exists
+ * @return self, for chain-call
+ * @throws IOException if file is not readable
+ */
+public UserManager LoadUserInfo(String infofp, String scorefp, String journalfp) throws IOException {
+  boolean compact;
+  synchronized (m_persistLock_) {
+    LoadUserInfo(infofp, scorefp);
+    if (m_journal_ != null) {
+      m_journal_.close();
+    }
+    m_journal_ = new UserJournal(new File(journalfp).toPath());
+    try {
+      m_journal_.Replay(this::ReplayJournalRow);
+      compact = m_journal_.GetEvents() >= m_compactionThreshold_;
+    } catch (CsvUtils.Exceptions.IllegalSyntaxException e) {
+      // The last event may be partially written, keep what has been replayed and start a clean journal
+      Logger.getLogger("global").warning("Journal is damaged: " + e.getMessage() + ". Compacting replayed events.");
+      compact = true;
+    }
+  }
+  if (compact) {
+    CompactUserInfo();
+  }
+  return this;
+}
+
+/**
+ * Keep scores of users in an off-heap store instead of the heap.
+ * The store must be set before any user is loaded or registered, and is shared with users registered later.
+ * <p>
+ * A file-backed store survives restarts: a non-empty store is taken as the score snapshot on loading, and changes
+ * since the last save are replayed from the journal on top of it. The store is forced to its file on every save.
+ *
+ * @param store the store, null to keep scores on heap
+ * @return self, for chain-call
+ */
+public UserManager UseScoreStore(ScoreStore store) {
+  m_store_ = store;
+  return this;
+}
+
+/**
+ * Keep the full history of attempts in a log, besides the recent scores kept in records.
+ * Attempts are only logged through {@link #LogAttempt(Users, String, int)} and
+ * {@link #SubmitAttempt(Users, String, int)}, loaded records are not logged.
+ *
+ * @param log the log, null to keep no history
+ * @return self, for chain-call
+ */
+public UserManager UseAttemptLog(AttemptLog log) {
+  m_attempts_ = log;
+  return this;
+}
+
+/**
+ * Get the log of attempts in use.
+ *
+ * @return the log, or null if no history is kept
+ */
+public AttemptLog GetAttemptLog() {
+  return m_attempts_;
+}
+
+/**
+ * Append an attempt to the log of attempts at the current time, if a log is in use.
+ * The attempt should have been recorded to the user too.
+ *
+ * @param user  user who made the attempt
+ * @param topic topic of the attempt
+ * @param score score of the attempt
+ * @return self, for chain-call
+ * @throws IOException if the log is not writable
+ */
+public UserManager LogAttempt(Users user, String topic, int score) throws IOException {
+  AttemptLog log = m_attempts_;
+  if (log != null) {
+    log.Append(user.GetId(), topic, System.currentTimeMillis(), score);
+  }
+  return this;
+}
+
+/**
+ * Load score records of a user only when they are first accessed, instead of parsing the whole score file on loading.
+ * Must be set before loading.
+ * <p>
+ * On loading, the score file is scanned once to index where the rows of every user lie, and a user's rows are parsed
+ * on the first access to the user's records. Queries over all users, the leaderboard and saving load all records.
+ *
+ * @param lazy true to load scores on access
+ * @return self, for chain-call
+ */
+public UserManager SetLazyScores(boolean lazy) {
+  m_lazyScores_ = lazy;
+  return this;
+}
+
+/**
+ * Set how many journal events trigger a compaction.
+ *
+ * @param threshold events, compacts on every change if not positive
+ * @return self, for chain-call
+ */
+public UserManager SetCompactionThreshold(long threshold) {
+  m_compactionThreshold_ = threshold;
+  return this;
+}
+
+/**
+ * Record a newly registered user, appending to the journal if there is one,
+ * otherwise saving the whole snapshot.
+ *
+ * @param user newly registered user
+ * @return self, for chain-call
+ * @throws IOException if file is not writable
+ */
+public UserManager CommitNewUser(Users user) throws IOException {
+  return AppendJournal(UserJournal.USER_EVENT, () -> ACCOUNT_CODEC.Encode(user));
+}
+
+/**
+ * Record a changed score record, appending to the journal if there is one,
+ * otherwise saving the whole snapshot.
+ *
+ * @param user  user whose record changed
+ * @param topic topic of the record
+ * @return self, for chain-call
+ * @throws IOException if file is not writable
+ */
+public UserManager CommitRecord(Users user, String topic) throws IOException {
+  ScoreRecords.TopicScores ts = user.GetRecords().getTopicScores(topic);
+  if (ts == null) {
+    return this;
+  }
+  return AppendJournal(UserJournal.SCORE_EVENT, () -> SCORE_CODEC.Encode(GenerateScoreRow(user, topic, ts)));
+}
+
+/**
+ * Start writing changes behind: changes submitted later are marked dirty and written by a background thread,
+ * coalesced into batches.
+ *
+ * @param interval  milliseconds from the first change of a batch to its flush
+ * @param threshold dirty users and records to flush a batch at once
+ * @return self, for chain-call
+ * @throws IllegalStateException if changes are already written behind
+ */
+public synchronized UserManager StartWriteBehind(long interval, int threshold) throws IllegalStateException {
+  if (m_flusher_ != null) {
+    throw new IllegalStateException("Changes are already written behind");
+  }
+  m_flusher_ = new UserFlusher(this::WriteBatch, interval, threshold);
+  return this;
+}
+
+/**
+ * Flush all submitted changes, wait for them to be written, then write later changes synchronously again.
+ * If the changes cannot be flushed, the whole snapshot is saved instead.
+ *
+ * @return self, for chain-call
+ * @throws IOException if the changes cannot be written
+ */
+public synchronized UserManager StopWriteBehind() throws IOException {
+  UserFlusher flusher = m_flusher_;
+  if (flusher != null) {
+    m_flusher_ = null;
+    try {
+      flusher.close();
+    } catch (IOException e) {
+      // Changes left dirty are dropped with the flusher, but the snapshot holds them all
+      Logger.getLogger("global").warning("Failed to flush changes: " + e.getMessage() + ". Compacting instead.");
+      try {
+        CompactUserInfo();
+      } catch (IOException | IllegalStateException ce) {
+        e.addSuppressed(ce);
+        throw e;
+      }
+    }
+  }
+  return this;
+}
+
+/**
+ * Submit a newly registered user to be written.
+ * The user is written behind if started, otherwise written at once like {@link #CommitNewUser(Users)}.
+ *
+ * @param user newly registered user
+ * @return future completed when the user is written, or completed exceptionally with the IOException
+ */
+public CompletableFuture<Void> SubmitNewUser(Users user) {
+  UserFlusher flusher = m_flusher_;
+  if (flusher != null) {
+    return flusher.MarkUser(user);
+  }
+  try {
+    CommitNewUser(user);
+    return CompletableFuture.completedFuture(null);
+  } catch (IOException e) {
+    return CompletableFuture.failedFuture(e);
+  }
+}
+
+/**
+ * Submit a changed score record to be written.
+ * The record is written behind if started, otherwise written at once like {@link #CommitRecord(Users, String)}.
+ *
+ * @param user  user whose record changed
+ * @param topic topic of the record
+ * @return future completed when the record is written, or completed exceptionally with the IOException
+ */
+public CompletableFuture<Void> SubmitRecord(Users user, String topic) {
+  UserFlusher flusher = m_flusher_;
+  if (flusher != null) {
+    return flusher.MarkRecord(user, topic);
+  }
+  try {
+    CommitRecord(user, topic);
+    return CompletableFuture.completedFuture(null);
+  } catch (IOException e) {
+    return CompletableFuture.failedFuture(e);
+  }
+}
+
+/**
+ * Submit an attempt to be logged, along with the changed score record of its topic.
+ * The attempt should have been recorded to the user. Both are written behind if started, and the log is forced with
+ * the batch; otherwise they are written at once like {@link #CommitRecord(Users, String)} and
+ * {@link #LogAttempt(Users, String, int)}.
+ *
+ * @param user  user who made the attempt
+ * @param topic topic of the attempt
+ * @param score score of the attempt
+ * @return future completed when the record and the attempt are written, or completed exceptionally with the
+ *     IOException
+ */
+public CompletableFuture<Void> SubmitAttempt(Users user, String topic, int score) {
+  long        time    = System.currentTimeMillis();
+  UserFlusher flusher = m_flusher_;
+  if (flusher != null) {
+    return flusher.MarkAttempt(user, topic, time, score);
+  }
+  try {
+    CommitRecord(user, topic);
+    AttemptLog log = m_attempts_;
+    if (log != null) {
+      log.Append(user.GetId(), topic, time, score)
+         .Force();
+    }
+    return CompletableFuture.completedFuture(null);
+  } catch (IOException | IllegalArgumentException e) {
+    return CompletableFuture.failedFuture(e);
+  }
+}
+
+/**
+ * Flush submitted changes now, without waiting for them.
+ *
+ * @return future completed when changes submitted so far are written
+ */
+public CompletableFuture<Void> Flush() {
+  UserFlusher flusher = m_flusher_;
+  return flusher == null ? CompletableFuture.completedFuture(null) : flusher.Flush();
+}
+
+/**
+ * Write a batch of changes: append them to the journal and sync it once, or save the whole snapshot if there
+ * is no journal. Attempts are then appended to the log of attempts, which is forced once.
+ *
+ * @param users    newly registered users
+ * @param records  changed topics of every user
+ * @param attempts attempts to be logged, taken from the queue once logged
+ * @throws IOException if file is not writable
+ */
+private void WriteBatch(List<Users> users, Map<Users, Set<String>> records, Queue<UserFlusher.Attempt> attempts)
+    throws IOException {
+  boolean compact;
+  synchronized (m_persistLock_) {
+    if (m_journal_ == null) {
+      compact = true;
+    } else {
+      try {
+        for (Users user : users) {
+          m_journal_.Write(UserJournal.USER_EVENT, ACCOUNT_CODEC.Encode(user));
+        }
+        for (Map.Entry<Users, Set<String>> entry : records.entrySet()) {
+          for (String topic : entry.getValue()) {
+            ScoreRecords.TopicScores ts = entry.getKey().GetRecords().getTopicScores(topic);
+            if (ts != null) {
+              m_journal_.Write(UserJournal.SCORE_EVENT, SCORE_CODEC.Encode(GenerateScoreRow(entry.getKey(), topic, ts)));
+            }
+          }
+        }
+      } finally {
+        m_journal_.Flush();
+      }
+      compact = m_journal_.GetEvents() >= m_compactionThreshold_;
+    }
+  }
+  LogAttempts(attempts);
+  if (compact) {
+    CompactUserInfo();
+  }
+}
+
+/**
+ * Append attempts to the log of attempts and force it, if a log is in use.
+ * An attempt is taken from the queue once appended, so a failed write leaves the rest to be retried.
+ * Attempts the log rejects are dropped.
+ *
+ * @param attempts attempts to be logged, in order
+ * @throws IOException if the log is not writable
+ */
+private void LogAttempts(Queue<UserFlusher.Attempt> attempts) throws IOException {
+  AttemptLog log = m_attempts_;
+  if (log == null || attempts.isEmpty()) {
+    attempts.clear();
+    return;
+  }
+  for (UserFlusher.Attempt a; (a = attempts.peek()) != null; attempts.poll()) {
+    try {
+      log.Append(a.GetUser().GetId(), a.GetTopic(), a.GetTime(), a.GetScore());
+    } catch (IllegalArgumentException e) {
+      Logger.getLogger("global").warning("Invalid attempt of user " + a.GetUser().GetId() + ": " + e.getMessage() + ". Skipping attempt.");
+    }
+  }
+  log.Force();
+}
+
+/**
+ * Save the whole snapshot to the files it was loaded from, then drop the journal.
+ * Concurrent compactions are batched: callers arriving while a compaction runs share the next one.
+ *
+ * @return self, for chain-call
+ * @throws IOException           if file is not writable
+ * @throws IllegalStateException if no user information has been loaded
+ */
+public UserManager CompactUserInfo() throws IOException, IllegalStateException {
+  synchronized (m_persistLock_) {
+    if (m_infofp_ == null || m_scorefp_ == null) {
+      throw new IllegalStateException("No user information has been loaded");
+    }
+  }
+  m_compaction_.Commit();
+  return this;
+}
+
+/**
+ * Save the whole snapshot to the files it was loaded from, then drop the journal. Run by {@link #m_compaction_}.
+ *
+ * @throws IOException if file is not writable
+ */
+private void Compact() throws IOException {
+  // Changes made during compaction wait to be journaled until the journal is cleared,
+  // replaying them again over the new snapshot does no harm
+  synchronized (m_persistLock_) {
+    SaveUserInfo(m_infofp_, m_scorefp_);
+    if (m_journal_ != null) {
+      m_journal_.Clear();
+    }
+  }
+}
+
+/**
+ * Sync events appended to the journal. Run by {@link #m_journalSync_}.
+ *
+ * @throws IOException if file is not writable
+ */
+private void SyncJournal() throws IOException {
+  synchronized (m_persistLock_) {
+    if (m_journal_ != null) {
+      m_journal_.Flush();
+    }
+  }
+}
+
+/**
+ * Append an event to the journal.
+ * The event row is generated under the lock, so a later event never carries older state than an earlier one.
+ *
+ * @param kind kind of the event
+ * @param row  generates the event row
+ * @return self, for chain-call
+ * @throws IOException if file is not writable
+ */
+private UserManager AppendJournal(String kind, Supplier<String[]> row) throws IOException {
+  boolean compact;
+  synchronized (m_persistLock_) {
+    if (m_journal_ == null) {
+      compact = true;
+    } else {
+      m_journal_.Write(kind, row.get());
+      compact = m_journal_.GetEvents() >= m_compactionThreshold_;
+    }
+  }
+  // Concurrent appenders share one sync, or one compaction
+  if (compact) {
+    return CompactUserInfo();
+  }
+  m_journalSync_.Commit();
+  return this;
+}
+
+/**
+ * Apply a journal event on top of loaded information.
+ * A score event only replaces the loaded record once it is decoded, an invalid one leaves the record untouched.
+ *
+ * @param row journal event
+ * @throws CsvUtils.Exceptions.IllegalSyntaxException if the event has a wrong count of columns
+ */
+private void ReplayJournalRow(String[] row) throws CsvUtils.Exceptions.IllegalSyntaxException {
+  List<String> l = Arrays.asList(row);
+  if (l.isEmpty() || l.stream().allMatch(String::isEmpty)) {
+    return;
+  }
+  List<String> snapshotRow = l.subList(1, l.size());
+  switch (GetField(l, 0)) {
+    case UserJournal.USER_EVENT:
+      CheckJournalRow(l, ACCOUNT_CODEC);
+      if (getUserById(GetField(snapshotRow, 0)) == null) {
+        LoadAccountInfoFromRow(snapshotRow);
+      }
+      break;
+    case UserJournal.SCORE_EVENT:
+      CheckJournalRow(l, SCORE_CODEC);
+      ScoreRow r = SCORE_CODEC.Decode(snapshotRow);
+      if (r == null) {
+        break;
+      }
+      // The event carries the whole record of the topic, replace the loaded one
+      Users user = getUserById(r.m_userId_);
+      if (user != null) {
+        user.GetRecords().removeTopic(r.m_topic_);
+        user.RecordChanged(r.m_topic_);
+      }
+      LoadScore(r);
+      break;
+    default:
+      Logger.getLogger("global").warning("Unknown journal event: " + l + ". Skipping event.");
+      break;
+  }
+}
+
+/**
+ * Check that a journal event has the kind and every column of its snapshot row, as written by {@link UserJournal}.
+ *
+ * @param l     journal event
+ * @param codec codec of the snapshot row
+ * @throws CsvUtils.Exceptions.IllegalSyntaxException if the count of columns is wrong
+ */
+private static void CheckJournalRow(List<String> l, CsvCodec<?> codec) throws CsvUtils.Exceptions.IllegalSyntaxException {
+  if (l.size() != codec.GetWidth() + 1) {
+    throw new CsvUtils.Exceptions.IllegalSyntaxException(
+        String.format("Journal event has %d columns instead of %d: %s", l.size(), codec.GetWidth() + 1, l));
+  }
+}
+
 /**
  * Save User Account and Score Information to file.
+ * <p>
+ * Users keep being updated while saving. The saved users are those registered when the save starts, and every
+ * score row is copied atomically, so the files never hold a score row without its user or a torn score row.
  *
  * @param infofp  account file path
  * @param scorefp score record information file path
@@ -61,16 +607,45 @@ public UserManager LoadUserInfo(String infofp, String scorefp) throws IOExceptio
  * @throws IOException if file is not writable
  */
 public UserManager SaveUserInfo(String infofp, String scorefp) throws IOException {
-  // Save user information
-  File infoFile = new File(infofp);
-  try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(infoFile), StandardCharsets.UTF_8))) {
-    writer.print(CsvWriter.GenerateContent(ExportAccountInfoToTable()));
+  // Every record is saved, so load them all and drop the score index before the score file is replaced
+  try {
+    LoadAllScores();
+  } catch (UncheckedIOException e) {
+    throw e.getCause();
+  }
+
+  // Take the snapshot in memory, writers are blocked at most for copying a single topic
+  List<Users>    users  = new ArrayList<>(m_users_.values());
+  List<ScoreRow> scores = new ArrayList<>();
+  for (Users u : users) {
+    for (Map.Entry<String, ScoreRecords.TopicScores> entry : u.GetRecords().getAllRecords().entrySet()) {
+      scores.add(GenerateScoreRow(u, entry.getKey(), entry.getValue()));
+    }
+  }
+
+  // Save user information, before scores so the files never hold a score row without its user
+  try (CsvWriter.AtomicRowWriter writer = CsvWriter.OpenAtomicRowWriter(new File(infofp).toPath())) {
+    for (Users u : users) {
+      ACCOUNT_CODEC.Write(writer, u);
+    }
+    writer.Commit();
   }
 
   // Save score information
-  File scoreFile = new File(scorefp);
-  try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(scoreFile), StandardCharsets.UTF_8))) {
-    writer.print(CsvWriter.GenerateContent(ExportScoreInfoToTable()));
+  try (CsvWriter.AtomicRowWriter writer = CsvWriter.OpenAtomicRowWriter(new File(scorefp).toPath())) {
+    for (ScoreRow r : scores) {
+      SCORE_CODEC.Write(writer, r);
+    }
+    writer.Commit();
+  }
+
+  ScoreStore store = m_store_;
+  if (store != null) {
+    store.Force();
+  }
+  AttemptLog log = m_attempts_;
+  if (log != null) {
+    log.Force();
   }
 
   return this;
@@ -83,12 +658,20 @@ public UserManager SaveUserInfo(String infofp, String scorefp) throws IOExceptio
  * @return self, for chain-call
  */
 public UserManager RegisterUser(Users user) {
-  for (Users existingUser : m_users_) {
-    if (user.GetId().equals(existingUser.GetId())) {
-      throw new UserManagement.Exceptions.DuplicateUserException("There exists a user whose id is " + user.GetId());
+  if (m_users_.putIfAbsent(user.GetId(), user) != null) {
+    throw new UserManagement.Exceptions.DuplicateUserException("There exists a user whose id is " + user.GetId());
+  }
+  ScoreStore store = m_store_;
+  if (store != null) {
+    user.AttachScoreStore(store);
+  }
+  user.SetRecordHook(m_leaderboard_::Refresh);
+  if (user.IsLoaded()) {
+    // Records loaded later are indexed through the hook
+    for (String topic : user.getAllTopicsAnswered()) {
+      m_leaderboard_.Refresh(user, topic);
     }
   }
-  m_users_.add(user);
   return this;
 }
 
@@ -119,14 +702,39 @@ public Users CheckLogin(String userId, String password) throws Exceptions.UserNo
  */
 public Table ExportAccountInfoToTable() {
   Table table = new Table();
-  for (Users u : m_users_) {
-    table.InsertLine(List.of(new String[]{
-        u.GetId(), u.GetName(), u.GetPasswd()
-    }));
+  for (Users u : m_users_.values()) {
+    table.InsertLine(List.of(ACCOUNT_CODEC.Encode(u)));
   }
   return table;
 }
 
+/**
+ * Decode an account info row into a user.
+ *
+ * @param f fields of the row
+ * @return the user, or null if the row is invalid
+ */
+private static Users DecodeAccount(CsvCodec.Fields f) {
+  try {
+    return new Users(f.GetString(ACCOUNT_ID), f.GetString(ACCOUNT_NAME), f.GetString(ACCOUNT_PASSWD));
+  } catch (CsvUtils.Exceptions.IllegalFieldException | UserManagement.Exceptions.UserInformationInvalidException e) {
+    Logger.getLogger("global").warning("Failed to register user: " + f + e.getMessage() + ". Skipping user.");
+    return null;
+  }
+}
+
+/**
+ * Encode a user into an account info row.
+ *
+ * @param u user
+ * @param f fields of the row
+ */
+private static void EncodeAccount(Users u, CsvCodec.Fields f) {
+  f.SetString(ACCOUNT_ID, u.GetId())
+   .SetString(ACCOUNT_NAME, u.GetName())
+   .SetString(ACCOUNT_PASSWD, u.GetPasswd());
+}
+
 /**
  * Load Account info from table.
  *
@@ -134,25 +742,39 @@ public Table ExportAccountInfoToTable() {
  * @return self, for chain-call
  */
 public UserManager LoadAccountInfoFromTable(Table table) {
-  for (String[] l : table.GetTable()) {
-    // Skip completely empty lines
-    if (Arrays.stream(l).allMatch(String::isEmpty)) {
-      continue;
-    }
+  for (Table.Cursor cursor = table.GetCursor(); cursor.Next(); ) {
+    LoadAccountInfoFromRow(cursor.GetLine());
+  }
+  return this;
+}
 
-    String userId = l[0].trim();
-    String userName = l[1].trim();
-    String password = l[2].trim();
+/**
+ * Load Account info from a single csv row.
+ *
+ * @param l account info row
+ */
+private void LoadAccountInfoFromRow(List<String> l) {
+  Users user = ACCOUNT_CODEC.Decode(l);
+  if (user != null) {
+    LoadAccount(user, null);
+  }
+}
 
-    try {
-      RegisterUser(new Users(userId, userName, password));
-    } catch (UserManagement.Exceptions.DuplicateUserException e) {
-      Logger.getLogger("global").warning("Duplicate user ID found: " + userId + ". Skipping user.");
-    } catch (UserManagement.Exceptions.UserInformationInvalidException e) {
-      Logger.getLogger("global").warning("Failed to register user: " +Arrays.toString(l)+ e.getMessage()+". Skipping user.");
-    }
+/**
+ * Register a user loaded from account info.
+ *
+ * @param user   loaded user
+ * @param scores index of score info to load the user's records from on access, null if loaded otherwise
+ */
+private void LoadAccount(Users user, CsvRowIndex scores) {
+  if (scores != null && scores.Contains(user.GetId())) {
+    user.SetRecordLoader(u -> LoadScores(u, scores));
+  }
+  try {
+    RegisterUser(user);
+  } catch (UserManagement.Exceptions.DuplicateUserException e) {
+    Logger.getLogger("global").warning("Duplicate user ID found: " + user.GetId() + ". Skipping user.");
   }
-  return this;
 }
 
 /**
@@ -162,26 +784,67 @@ public UserManager LoadAccountInfoFromTable(Table table) {
  */
 public Table ExportScoreInfoToTable() {
   Table table = new Table();
-  for (Users u : m_users_) {
+  for (Users u : m_users_.values()) {
     for (Map.Entry<String, ScoreRecords.TopicScores> entry : u.GetRecords().getAllRecords().entrySet()) {
-      String topic = entry.getKey();
-      ScoreRecords.TopicScores ts = entry.getValue();
-      List<Integer> recentScores = ts.getRecentScores();
-      Integer highestScore = ts.getHighestScore();
+      table.InsertLine(List.of(SCORE_CODEC.Encode(GenerateScoreRow(u, entry.getKey(), entry.getValue()))));
+    }
+  }
+  return table;
+}
 
-      // Construct score row
-      String score1 = recentScores.size() >= 1 ? recentScores.get(0).toString() : "";
-      String score2 = recentScores.size() >= 2 ? recentScores.get(1).toString() : "";
-      String score3 = recentScores.size() >= 3 ? recentScores.get(2).toString() : "";
-      String highest = highestScore != null ? highestScore.toString() : "";
+/**
+ * Generate score info row of a user on a topic.
+ *
+ * @param u     user
+ * @param topic topic
+ * @param ts    score records of the topic
+ * @return score info row
+ */
+private static ScoreRow GenerateScoreRow(Users u, String topic, ScoreRecords.TopicScores ts) {
+  synchronized (ts) {
+    return new ScoreRow(u.GetId(), topic, ts.getRecentScores().toArray(new Integer[0]), ts.getHighestScore());
+  }
+}
 
-      table.InsertLine(List.of(new String[]{
-          u.GetId(), topic, score1, score2, score3, highest
-      }));
+/**
+ * Decode a score info row.
+ *
+ * @param f fields of the row
+ * @return the row, or null if the row is invalid
+ */
+private static ScoreRow DecodeScore(CsvCodec.Fields f) {
+  try {
+    Integer[] recent = new Integer[RECENT_SCORES];
+    for (int i = 0; i < RECENT_SCORES; i++) {
+      recent[i] = f.IsNull(SCORE_RECENT + i) ? null : f.GetInt(SCORE_RECENT + i);
+    }
+    Integer highest = f.IsNull(SCORE_HIGHEST) ? null : f.GetInt(SCORE_HIGHEST);
+    return new ScoreRow(f.GetString(SCORE_USER), f.GetString(SCORE_TOPIC), recent, highest);
+  } catch (NumberFormatException e) {
+    Logger.getLogger("global").warning("Invalid score format in record: " + f + ". Skipping record.");
+  } catch (CsvUtils.Exceptions.IllegalFieldException e) {
+    Logger.getLogger("global").warning("Invalid score record: " + f + e.getMessage() + ". Skipping record.");
+  }
+  return null;
+}
 
+/**
+ * Encode a score info row.
+ *
+ * @param r score info row
+ * @param f fields of the row
+ */
+private static void EncodeScore(ScoreRow r, CsvCodec.Fields f) {
+  f.SetString(SCORE_USER, r.m_userId_)
+   .SetString(SCORE_TOPIC, r.m_topic_);
+  for (int i = 0; i < RECENT_SCORES && i < r.m_recent_.length; i++) {
+    if (r.m_recent_[i] != null) {
+      f.SetInt(SCORE_RECENT + i, r.m_recent_[i]);
     }
   }
-  return table;
+  if (r.m_highest_ != null) {
+    f.SetInt(SCORE_HIGHEST, r.m_highest_);
+  }
 }
 
 /**
@@ -191,60 +854,108 @@ public Table ExportScoreInfoToTable() {
  * @return self, for chain-call
  */
 public UserManager LoadScoreInfoFromTable(Table table) {
-  for (String[] l : table.GetTable()) {
-    // Skip completely empty lines
-    if (l == null || l.length == 0 || Arrays.stream(l).allMatch(String::isEmpty)) {
-      continue;
-    }
+  for (Table.Cursor cursor = table.GetCursor(); cursor.Next(); ) {
+    LoadScoreInfoFromRow(cursor.GetLine());
+  }
+  return this;
+}
 
-    // Parse and process the line
-    String userId = l[0].trim();
-    String topic = l[1].trim();
-    String score1Str = l[2].trim();
-    String score2Str = l[3].trim();
-    String score3Str = l[4].trim();
-    String highestScoreStr = l[5].trim();
+/**
+ * Load score info from a single csv row.
+ *
+ * @param l score info row
+ */
+private void LoadScoreInfoFromRow(List<String> l) {
+  ScoreRow r = SCORE_CODEC.Decode(l);
+  if (r != null) {
+    LoadScore(r);
+  }
+}
 
-    Users user = getUserById(userId);
-    if (user != null) {
-      try {
-        if (topic.isEmpty()) {
-          Logger.getLogger("global").warning("No topic information for user: " + userId + ". Skipping record.");
-          continue;
-        }
-        if (user.GetRecords().getAllRecords().containsKey(topic)) {
-          Logger.getLogger("global").warning("Record already exists for user: " + userId + " and topic: " + topic + ". Skipping record.");
-          continue;
-        }
+/**
+ * Apply a loaded score info row to its user.
+ *
+ * @param r score info row
+ */
+private void LoadScore(ScoreRow r) {
+  String userId = r.m_userId_;
+  String topic = r.m_topic_;
 
-        if (!score1Str.isEmpty()) user.NewRecord(topic, Integer.parseInt(score1Str));
-        if (!score2Str.isEmpty()) user.NewRecord(topic, Integer.parseInt(score2Str));
-        if (!score3Str.isEmpty()) user.NewRecord(topic, Integer.parseInt(score3Str));
-        if (!highestScoreStr.isEmpty()) {
-          int highestScore = Integer.parseInt(highestScoreStr);
-          List<Integer> recentScores = user.GetTopicSpecifiedRecentRecords(topic);
-          boolean skipRecord = false;
-          for (Integer score : recentScores) {
-            if (score != null && score > highestScore) {
-              Logger.getLogger("global").warning("Highest score is lower than a recent score for user: " + userId + ". Skipping record.");
-              skipRecord = true;
-              break;
-            }
-          }
-          if (!skipRecord) {
-            user.SetTopicSpecifiedHighestRecord(topic, highestScore);
+  Users user = getUserById(userId);
+  if (user != null) {
+    try {
+      if (user.GetRecords().getAllRecords().containsKey(topic)) {
+        Logger.getLogger("global").warning("Record already exists for user: " + userId + " and topic: " + topic + ". Skipping record.");
+        return;
+      }
+
+      for (Integer score : r.m_recent_) {
+        if (score != null) user.NewRecord(topic, score);
+      }
+      if (r.m_highest_ != null) {
+        int highestScore = r.m_highest_;
+        List<Integer> recentScores = user.GetTopicSpecifiedRecentRecords(topic);
+        boolean skipRecord = false;
+        for (Integer score : recentScores) {
+          if (score != null && score > highestScore) {
+            Logger.getLogger("global").warning("Highest score is lower than a recent score for user: " + userId + ". Skipping record.");
+            skipRecord = true;
+            break;
           }
         }
-      } catch (NumberFormatException e) {
-        Logger.getLogger("global").warning("Invalid score format in record: " + Arrays.toString(l)+ ". Skipping record.");
-      } catch (Exceptions.ScoreValueOutOfRangeException e) {
-        Logger.getLogger("global").warning("Invalid score value in record: " + Arrays.toString(l)+ ". Skipping record.");
+        if (!skipRecord) {
+          user.SetTopicSpecifiedHighestRecord(topic, highestScore);
+        }
       }
-    } else {
-      Logger.getLogger("global").warning("User not found for score record: " + Arrays.toString(l)+ ". Skipping record.");
+    } catch (Exceptions.ScoreValueOutOfRangeException e) {
+      Logger.getLogger("global").warning("Invalid score value in record for user: " + userId + " and topic: " + topic + ". Skipping record.");
     }
+  } else {
+    Logger.getLogger("global").warning("User not found for score record: " + userId + ". Skipping record.");
   }
-  return this;
+}
+
+/**
+ * Load score info rows of a user from an index. A damaged row is skipped with the rows after it.
+ *
+ * @param user   the user
+ * @param scores index of score info
+ * @throws UncheckedIOException if the score file is not readable, no record is loaded then
+ */
+private void LoadScores(Users user, CsvRowIndex scores) throws UncheckedIOException {
+  try {
+    scores.ForEachRecord(user.GetId(), SCORE_CODEC, this::LoadScore);
+  } catch (CsvUtils.Exceptions.IllegalSyntaxException e) {
+    Logger.getLogger("global").warning("Score records of user " + user.GetId() + " are damaged: " + e.getMessage() + ". Skipping records.");
+  } catch (IOException e) {
+    throw new UncheckedIOException("Failed to read score records of user " + user.GetId(), e);
+  }
+}
+
+/**
+ * Load score records of all users not loaded yet.
+ *
+ * @throws UncheckedIOException if the score file is not readable, the index is kept to retry
+ */
+private void LoadAllScores() throws UncheckedIOException {
+  if (m_scoreIndex_ == null) {
+    return;
+  }
+  for (Users u : m_users_.values()) {
+    u.GetRecords();
+  }
+  m_scoreIndex_ = null;
+}
+
+/**
+ * Get a trimmed field of a csv row.
+ *
+ * @param l   csv row
+ * @param col column of the field
+ * @return the trimmed field, empty if the row is shorter
+ */
+private static String GetField(List<String> l, int col) {
+  return col < l.size() ? l.get(col).trim() : "";
 }
 
 /**
@@ -254,12 +965,7 @@ public UserManager LoadScoreInfoFromTable(Table table) {
  * @return Users object, or null if not found
  */
 public Users getUserById(String id) {
-  for (Users user : m_users_) {
-    if (user.GetId().equals(id)) {
-      return user;
-    }
-  }
-  return null;
+  return m_users_.get(id);
 }
 
 /**
@@ -268,23 +974,49 @@ public Users getUserById(String id) {
  * @return unmodifiable set of users
  */
 public Set<Users> GetAllUsers() {
-  return Collections.unmodifiableSet(m_users_);
+  return m_usersView_;
 }
 
 /**
  * Get all topics answered by any user.
  *
- * @return an array of all answered topics
+ * @return an array of all answered topics, in alphabetical order
  */
 public String[] getAllTopicsAnsweredByAnyUser() {
-  Set<String> allTopics = new HashSet<>();
-  for (Users user : m_users_) {
-    String[] answeredTopics = user.getAllTopicsAnswered();
-    for (String topic : answeredTopics) {
-      allTopics.add(topic);
-    }
+  LoadAllScores();
+  return m_leaderboard_.GetTopics();
+}
+
+/**
+ * Get the leaderboard of registered users, kept up to date as their records change.
+ *
+ * @return the leaderboard
+ */
+public Leaderboard GetLeaderboard() {
+  LoadAllScores();
+  return m_leaderboard_;
+}
+
+/**
+ * Unmodifiable view of registered users, reflects later registrations
+ */
+private class UsersView
+    extends AbstractSet<Users> {
+  @Override
+  public Iterator<Users> iterator() {
+    return Collections.unmodifiableCollection(m_users_.values())
+                      .iterator();
+  }
+
+  @Override
+  public int size() {
+    return m_users_.size();
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof Users && m_users_.get(((Users) o).GetId()) == o;
   }
-  return allTopics.toArray(new String[0]);
 }
 }
 
@@ -1,5 +1,6 @@
 package UserManagement;
 
+import java.io.UncheckedIOException;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -7,12 +8,45 @@ import java.util.Set;
 
 /**
  * Represents a user with an ID, name, password, and score records.
+ * A user may be updated from multiple threads, see {@link ScoreRecords}.
  */
 public class Users {
-private final   String        m_id_;
-private final   String        m_name_;
-private final   ScoreRecords  m_record_ = new ScoreRecords();
-private         String        m_passwd_;
+
+/**
+ * Callback applied after a record of the user changes
+ */
+public interface RecordHook {
+
+  /**
+   * Apply the hook to a changed record
+   *
+   * @param user  the user
+   * @param topic topic of the changed record
+   */
+  void Apply(Users user, String topic);
+}
+
+/**
+ * Loads score records of a user on first access
+ */
+interface RecordLoader {
+
+  /**
+   * Load records into the user, records are added through the user as usual
+   *
+   * @param user the user
+   * @throws UncheckedIOException if records cannot be read, no record is added and the loader is kept to retry
+   */
+  void Apply(Users user) throws UncheckedIOException;
+}
+
+private final    String        m_id_;
+private final    String        m_name_;
+private final    ScoreRecords  m_record_  = new ScoreRecords();
+private volatile String        m_passwd_;
+private volatile RecordHook    m_hook_;
+private volatile RecordLoader  m_loader_;           // loads records on first access, null once loaded
+private          boolean       m_loading_ = false;  // if the loader is running, guarded by this
 
 /**
  * Constructs a new user.
@@ -91,7 +125,7 @@ public String GetId() {
  * @return the score records
  */
 public ScoreRecords GetRecords() {
-  return m_record_;
+  return Records();
 }
 
 /**
@@ -100,7 +134,7 @@ public ScoreRecords GetRecords() {
  * @return an array of all answered topics
  */
 public String[] GetAnsweredTopics() {
-  return m_record_.getAllRecords().keySet().toArray(new String[0]);
+  return Records().getAllRecords().keySet().toArray(new String[0]);
 }
 
 /**
@@ -117,11 +151,12 @@ public void NewRecord(String topic, Integer score) {
   if (score < 0 || score > 100) {
     throw new Exceptions.ScoreValueOutOfRangeException("Score value is out of range: " + score);
   }
-  m_record_.addScore(topic, score);
+  Records().addScore(topic, score);
   Integer currentHighest = GetTopicSpecifiedHighestRecord(topic);
   if (currentHighest == null || score > currentHighest) {
     SetTopicSpecifiedHighestRecord(topic, score);
   }
+  RecordChanged(topic);
 }
 
 /**
@@ -131,7 +166,7 @@ public void NewRecord(String topic, Integer score) {
  * @return a list of the most recent three scores for the specified topic
  */
 public List<Integer> GetTopicSpecifiedRecentRecords(String topic) {
-  ScoreRecords.TopicScores ts = m_record_.getTopicScores(topic);
+  ScoreRecords.TopicScores ts = Records().getTopicScores(topic);
   return ts != null ? ts.getRecentScores() : List.of();
 }
 
@@ -142,7 +177,7 @@ public List<Integer> GetTopicSpecifiedRecentRecords(String topic) {
  * @return the highest score for the specified topic
  */
 public Integer GetTopicSpecifiedHighestRecord(String topic) {
-  ScoreRecords.TopicScores ts = m_record_.getTopicScores(topic);
+  ScoreRecords.TopicScores ts = Records().getTopicScores(topic);
   return ts != null ? ts.getHighestScore() : null;
 }
 
@@ -151,14 +186,75 @@ public Integer GetTopicSpecifiedHighestRecord(String topic) {
  *
  * @param topic the name of the topic
  * @param score the highest score to set
+ * @throws Exceptions.ScoreValueOutOfRangeException if the score is out of the valid range (0-100)
  */
 public void SetTopicSpecifiedHighestRecord(String topic, Integer score) {
-  ScoreRecords.TopicScores ts = m_record_.getTopicScores(topic);
+  if (score != null && (score < 0 || score > 100)) {
+    throw new Exceptions.ScoreValueOutOfRangeException("Score value is out of range: " + score);
+  }
+  ScoreRecords records = Records();
+  ScoreRecords.TopicScores ts = records.getTopicScores(topic);
   if (ts == null) {
-    m_record_.addScore(topic, score);
-    ts = m_record_.getTopicScores(topic);
+    records.addScore(topic, score);
+    ts = records.getTopicScores(topic);
   }
   ts.setHighestScore(score);
+  RecordChanged(topic);
+}
+
+/**
+ * Move the user's score records to an off-heap store, see {@link ScoreRecords}.
+ *
+ * @param store the store
+ * @return the user object
+ */
+Users AttachScoreStore(ScoreStore store) {
+  m_record_.attachStore(store, m_id_);
+  return this;
+}
+
+/**
+ * Set the loader of the user's score records, run on the first access to them.
+ * Records already kept are merged with the loaded ones. The loader runs once, even if it fails.
+ *
+ * @param loader the loader, null if records need no loading
+ * @return the user object
+ */
+Users SetRecordLoader(RecordLoader loader) {
+  m_loader_ = loader;
+  return this;
+}
+
+/**
+ * Check if the user's score records have been loaded.
+ *
+ * @return false if the records are loaded on next access
+ */
+boolean IsLoaded() {
+  return m_loader_ == null;
+}
+
+/**
+ * Set the hook applied after a record of the user changes, replacing the previous one.
+ *
+ * @param hook the hook, null to remove
+ * @return the user object
+ */
+Users SetRecordHook(RecordHook hook) {
+  m_hook_ = hook;
+  return this;
+}
+
+/**
+ * Notify the hook that a record has changed.
+ *
+ * @param topic topic of the changed record
+ */
+void RecordChanged(String topic) {
+  RecordHook hook = m_hook_;
+  if (hook != null) {
+    hook.Apply(this, topic);
+  }
 }
 
 /**
@@ -167,7 +263,31 @@ public void SetTopicSpecifiedHighestRecord(String topic, Integer score) {
  * @return an array of topics that have a score record
  */
 public String[] getAllTopicsAnswered() {
-  return m_record_.keySet()
+  return Records().keySet()
                   .toArray(new String[0]);
 }
+
+/**
+ * Get score records, loading them first if not loaded yet.
+ * Other threads wait until the loading finishes, while the loader itself sees the records being loaded.
+ *
+ * @return the score records
+ */
+private ScoreRecords Records() {
+  if (m_loader_ != null) {
+    synchronized (this) {
+      RecordLoader loader = m_loader_;
+      if (loader != null && !m_loading_) {
+        m_loading_ = true;
+        try {
+          loader.Apply(this);
+          m_loader_ = null;
+        } finally {
+          m_loading_ = false;
+        }
+      }
+    }
+  }
+  return m_record_;
+}
 }
\ No newline at end of file
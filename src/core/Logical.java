@@ -1,6 +1,7 @@
 package core;
 
 import QuestionManagement.QuestionManager;
+import UserManagement.AttemptLog;
 import UserManagement.UserManager;
 
 import java.io.IOException;
@@ -79,7 +80,10 @@ public Logical RegisterAfterFunctionHook(CallBackHook.Hook hook) {
 public boolean LoadRequiredInfo() {
   boolean success = true;
   try {
-    m_users_.LoadUserInfo("resources/user.csv", "resources/score.csv");
+    m_users_.SetLazyScores(true)
+            .UseAttemptLog(AttemptLog.Open("resources/attempts.bin"))
+            .LoadUserInfo("resources/user.csv", "resources/score.csv", "resources/journal.csv")
+            .StartWriteBehind(UserManager.DEFAULT_FLUSH_INTERVAL, UserManager.DEFAULT_FLUSH_THRESHOLD);
     m_questions_.LoadQuestions("resources/questionsBank");
   } catch (IOException e) {
     Logger.getLogger("global")
@@ -90,18 +94,29 @@ public boolean LoadRequiredInfo() {
 }
 
 /**
- * Save information.
+ * Save information, flushing changes still written behind and waiting for them.
  *
  * @return true if successful, false otherwise
  */
 public boolean SaveInfo() {
   boolean success = true;
   try {
-    m_users_.SaveUserInfo("resources/user.csv", "resources/score.csv");
+    m_users_.StopWriteBehind();
   } catch (IOException e) {
     Logger.getLogger("global")
           .info(e.getMessage());
     success = false;
+  } finally {
+    AttemptLog log = m_users_.GetAttemptLog();
+    if (log != null) {
+      try {
+        log.close();
+      } catch (IOException e) {
+        Logger.getLogger("global")
+              .info(e.getMessage());
+        success = false;
+      }
+    }
   }
   return success;
 }
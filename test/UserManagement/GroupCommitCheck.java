@@ -0,0 +1,99 @@
+package UserManagement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent check of {@link GroupCommit}, run with {@code java UserManagement.GroupCommitCheck}.
+ * <p>
+ * Requesters put items into a buffer, then request a commit. A commit takes the buffer and fails half of the time,
+ * putting the items back for a later commit, as a buffered journal keeps unsynced events. Some failures are errors
+ * instead of IOExceptions. A request that returns normally must find its item durable, even when the commits around it
+ * fail.
+ */
+public class GroupCommitCheck {
+private static final int THREADS  = 16;
+private static final int REQUESTS = 2000;  // requests of every thread
+
+private final Set<Long>  m_buffer_  = ConcurrentHashMap.newKeySet();  // items not committed yet
+private final Set<Long>  m_durable_ = ConcurrentHashMap.newKeySet();  // items committed
+private final AtomicLong m_commits_ = new AtomicLong();
+private final AtomicLong m_failed_  = new AtomicLong();
+
+/**
+ * Commit every buffered item, or fail and keep them buffered
+ *
+ * @throws IOException        if the commit fails
+ * @throws StackOverflowError if the commit fails as with a deep save
+ */
+private void Apply() throws IOException, StackOverflowError {
+  m_commits_.incrementAndGet();
+  List<Long> items = new ArrayList<>(m_buffer_);
+  m_buffer_.removeAll(items);
+  int dice = ThreadLocalRandom.current().nextInt(100);
+  if (dice < 50) {
+    Thread.yield();
+    m_buffer_.addAll(items);
+    m_failed_.incrementAndGet();
+    if (dice < 10) {
+      throw new StackOverflowError("Commit failed on purpose");
+    }
+    throw new IOException("Commit failed on purpose");
+  }
+  m_durable_.addAll(items);
+}
+
+/**
+ * Run the check
+ *
+ * @param args unused
+ * @throws Exception if the check cannot be run
+ */
+public static void main(String[] args) throws Exception {
+  GroupCommitCheck check  = new GroupCommitCheck();
+  GroupCommit      group  = new GroupCommit(check::Apply);
+  AtomicLong       lost   = new AtomicLong();
+  AtomicLong       thrown = new AtomicLong();
+
+  ExecutorService pool  = Executors.newFixedThreadPool(THREADS);
+  List<Future<?>> tasks = new ArrayList<>();
+  for (int t = 0; t < THREADS; t++) {
+    long base = (long) t * REQUESTS;
+    tasks.add(pool.submit(() -> {
+      for (long item = base; item < base + REQUESTS; item++) {
+        check.m_buffer_.add(item);
+        try {
+          group.Commit();
+          if (! check.m_durable_.contains(item)) {
+            lost.incrementAndGet();
+          }
+        } catch (IOException | StackOverflowError e) {
+          thrown.incrementAndGet();
+        }
+      }
+      return null;
+    }));
+  }
+  for (Future<?> task : tasks) {
+    task.get();
+  }
+  pool.shutdown();
+
+  System.out.printf("requests %d, commits %d, failed commits %d, failed requests %d, lost items %d%n",
+                    (long) THREADS * REQUESTS, check.m_commits_.get(), check.m_failed_.get(), thrown.get(), lost.get());
+  if (lost.get() > 0 || check.m_failed_.get() == 0) {
+    System.out.println("FAILED");
+    System.exit(1);
+  }
+  System.out.println("OK");
+}
+
+}